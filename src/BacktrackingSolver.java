@@ -0,0 +1,809 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntPredicate;
+
+/**
+ * Complete solver for the knight's tour problem.
+ *
+ * The solver walks the board in Warnsdorff order, trying the unvisited
+ * neighbour with the fewest onward moves first, and backtracks when the
+ * knight is stuck. The search is iterative, so the depth of a tour is only
+ * limited by memory, and it stops early when the remaining board can no
+ * longer be covered:
+ *
+ * - an unvisited tile has no onward move left, but it is not
+ *   the last tile of the tour, or
+ * - more than one unvisited tile away from the knight has at most one
+ *   onward move left, since each of them has to be the end of the tour.
+ *
+ * Before the search starts, the colours of the tiles are counted. A knight
+ * always changes colour, so a tour can only exist if the colours differ by at
+ * most one tile, and must start on the more common colour if they differ.
+ * The same holds for any piece of a {@link MoveTable} whose moves all change
+ * colour, and the count is skipped for the others.
+ *
+ * In closed mode, the last tile of the tour has to be a knight's move away
+ * from the start. The start keeps counting as an onward move of its
+ * neighbours, so Warnsdorff ordering leaves them for the end of the tour,
+ * and the search backtracks as soon as every neighbour of the start has
+ * been visited. If that search takes too long, an open tour is closed
+ * afterwards by rotating its end, for a limited number of rotations. A closed
+ * tour is a cycle through every tile, so once one has been found it is rotated
+ * to serve every other start without a search. Boards where Schwenk's theorem
+ * rules out a closed knight's tour are rejected before any search.
+ *
+ * Blocked tiles of the {@link MoveTable} are treated as visited from the
+ * start, and only the open tiles are counted, so a tour covers exactly
+ * the open tiles.
+ *
+ * A search can be bounded by a number of nodes and by a timeout. It can
+ * also continue a partial path, which tells whether that path can still
+ * be completed.
+ */
+public class BacktrackingSolver {
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    private static final int CLOSED_SEARCH_FACTOR = 16;
+    private static final int ROTATION_FACTOR = 64;
+    private final MoveTable moveTable;
+    private final int[] neighbours;
+    private final int moveCount;
+    private final int squareCount;
+    private final int openSquareCount;
+    private final boolean[] visited;
+    private final int[] degrees;
+    private final int[] centreDistances;
+    private final int[] path;
+    private final int[] candidates;
+    private final int[] candidateCounter;
+    private final int[] candidateCursor;
+    private int lowDegreeCounter;
+    private int zeroDegreeCounter;
+    private long nodeBudget = Long.MAX_VALUE;
+    private long timeoutMillis = 0;
+    private IntPredicate endCondition;
+    private BooleanSupplier cancellation;
+    private boolean closed;
+    private int[] closedCycle;
+
+    /**
+     * The outcome of a search.
+     */
+    public enum Status {
+        /** A tour has been found. */
+        FOUND,
+        /** The whole search space has been explored without finding a tour. */
+        EXHAUSTED,
+        /** The node budget ran out before a tour was found. */
+        BUDGET_EXCEEDED,
+        /** The timeout expired before a tour was found. */
+        TIMED_OUT,
+        /** The search was cancelled before a tour was found. */
+        CANCELLED
+    }
+
+    /**
+     * Construct a solver for a rectangular board.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     */
+    public BacktrackingSolver(int rows, int columns) {
+        this(new MoveTable(rows, columns));
+    }
+
+    /**
+     * Construct a solver on top of an existing move table.
+     *
+     * @param moveTable the precomputed moves of the board
+     */
+    public BacktrackingSolver(MoveTable moveTable) {
+        this.moveTable = moveTable;
+        this.neighbours = moveTable.getNeighbours();
+        this.moveCount = moveTable.getMoveCount();
+        this.squareCount = moveTable.getSquareCount();
+        this.openSquareCount = moveTable.getOpenSquareCount();
+        this.visited = new boolean[squareCount];
+        this.degrees = new int[squareCount];
+        this.centreDistances = new int[squareCount];
+        this.path = new int[squareCount];
+        this.candidates = new int[squareCount * moveCount];
+        this.candidateCounter = new int[squareCount];
+        this.candidateCursor = new int[squareCount];
+
+        // Squared distance from the centre of the board, doubled to stay integral
+        for (int square = 0; square < squareCount; square++) {
+            long rowOffset = 2L * moveTable.toRow(square) - (moveTable.getRows() - 1);
+            long columnOffset = 2L * moveTable.toColumn(square) - (moveTable.getColumns() - 1);
+            centreDistances[square] = (int) Math.min(Integer.MAX_VALUE, rowOffset * rowOffset + columnOffset * columnOffset);
+        }
+    }
+
+    /**
+     * Get the move table used by the solver.
+     */
+    public MoveTable getMoveTable() {
+        return moveTable;
+    }
+
+    /**
+     * Set the maximum number of nodes that a search may expand.
+     *
+     * @param nodeBudget the number of nodes, or {@link Long#MAX_VALUE} for no limit
+     */
+    public void setNodeBudget(long nodeBudget) {
+        this.nodeBudget = nodeBudget;
+    }
+
+    /**
+     * Set the maximum time that a search may take.
+     *
+     * @param timeoutMillis the timeout in milliseconds, or 0 for no limit
+     */
+    public void setTimeout(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Set a flag that stops a search from another thread.
+     *
+     * The flag is polled as often as the clock, so a cancelled search
+     * stops within a few thousand nodes.
+     *
+     * @param cancellation a flag that becomes {@code true} once the search
+     *                     has to stop, or {@code null} to never stop early
+     */
+    public void setCancellation(BooleanSupplier cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Set a condition that the last square of a tour has to satisfy.
+     *
+     * The condition is not used in closed mode, where the last square
+     * is fixed by the start.
+     *
+     * @param endCondition a test on the last square, or {@code null} to accept any
+     */
+    public void setEndCondition(IntPredicate endCondition) {
+        this.endCondition = endCondition;
+    }
+
+    /**
+     * Turn on/off the closed mode, where the tour has to end
+     * a knight's move away from its start.
+     *
+     * @param closed {@code true} to search for closed tours only
+     */
+    public void setClosed(boolean closed) {
+        this.closed = closed;
+        this.closedCycle = null;
+    }
+
+    /**
+     * Search for a tour from a starting tile.
+     *
+     * @param initialRow the starting row of the tour
+     * @param initialColumn the starting column of the tour
+     * @return the outcome of the search
+     */
+    public Result solve(int initialRow, int initialColumn) {
+        return solve(moveTable.toSquare(initialRow, initialColumn));
+    }
+
+    /**
+     * Search for a tour from a starting square.
+     *
+     * @param initialSquare the starting square of the tour
+     * @return the outcome of the search
+     */
+    public Result solve(int initialSquare) {
+        boolean colourSwitching = moveTable.getMoveSet().isColourSwitching();
+        if (moveTable.isBlocked(initialSquare)
+                || colourSwitching && (!isColourBalanced(initialSquare) || (closed && openSquareCount % 2 != 0))
+                || closed && hasNoClosedKnightTour()) {
+            return new Result(Status.EXHAUSTED, null, 0);
+        }
+
+        long deadline = timeoutMillis > 0 ? System.nanoTime() + timeoutMillis * 1_000_000L : 0;
+        if (closed) {
+            return solveClosed(initialSquare, deadline);
+        }
+
+        return search(new int[]{ initialSquare }, false, nodeBudget, deadline);
+    }
+
+    /**
+     * Search for a tour that continues a partial path.
+     *
+     * The squares of the path are kept as the start of the tour, and only the
+     * moves after its last square are searched, so an exhausted search proves
+     * that the path cannot be completed. In closed mode, the tour has to end a
+     * knight's move away from the first square of the path, and no open tour
+     * is rotated to close it.
+     *
+     * @param prefix the squares visited so far, each a move away from the one before
+     * @return the outcome of the search, with the whole tour including the prefix
+     */
+    public Result solve(int[] prefix) {
+        if (prefix.length == 0 || prefix.length > openSquareCount) {
+            throw new IllegalArgumentException("Invalid path length: " + prefix.length);
+        }
+        boolean[] seen = new boolean[squareCount];
+        for (int depth = 0; depth < prefix.length; depth++) {
+            if (prefix[depth] < 0 || prefix[depth] >= squareCount || seen[prefix[depth]]
+                    || moveTable.isBlocked(prefix[depth]) || (depth > 0 && !isNeighbour(prefix[depth - 1], prefix[depth]))) {
+                throw new IllegalArgumentException("Invalid path at position " + depth);
+            }
+            seen[prefix[depth]] = true;
+        }
+
+        boolean colourSwitching = moveTable.getMoveSet().isColourSwitching();
+        if (colourSwitching && (!isColourBalanced(prefix[0]) || (closed && openSquareCount % 2 != 0))
+                || closed && hasNoClosedKnightTour()) {
+            return new Result(Status.EXHAUSTED, null, 0);
+        }
+
+        long deadline = timeoutMillis > 0 ? System.nanoTime() + timeoutMillis * 1_000_000L : 0;
+        return search(prefix, closed, nodeBudget, deadline);
+    }
+
+    /**
+     * Search for a closed tour from a starting square.
+     *
+     * Firstly, a closed tour found earlier is rotated to the start, if any.
+     * Secondly, a short search for a closed tour is made from the start.
+     * If it fails, an open tour is made from the centre of the board, where
+     * the knight ends close to its start, and its end is rotated until it
+     * is a knight's move away from the start. Lastly, the closed tour is
+     * rotated to the requested start.
+     *
+     * @param initialSquare the starting square of the tour
+     * @param deadline the time at which the search stops, or 0 for no limit
+     * @return the outcome of the search
+     */
+    private Result solveClosed(int initialSquare, long deadline) {
+        if (closedCycle != null) {
+            return new Result(Status.FOUND, rotateClosedCycle(initialSquare), 0);
+        }
+
+        long closedBudget = Math.min(nodeBudget, (long) squareCount * CLOSED_SEARCH_FACTOR);
+        Result result = search(new int[]{ initialSquare }, true, closedBudget, deadline);
+        if (result.getStatus() != Status.BUDGET_EXCEEDED || closedBudget == nodeBudget) {
+            if (result.isFound()) {
+                closedCycle = result.getPath();
+            }
+            return result;
+        }
+
+        long nodeCounter = result.getNodeCounter();
+        result = search(new int[]{ getCentreSquare() }, false, nodeBudget - nodeCounter, deadline);
+        nodeCounter += result.getNodeCounter();
+        if (!result.isFound()) {
+            return new Result(result.getStatus(), null, nodeCounter);
+        }
+
+        int[] cycle = result.getPath();
+        long rotationBudget = Math.min(nodeBudget - nodeCounter, (long) squareCount * ROTATION_FACTOR);
+        long rotationCounter = closeByRotation(cycle, rotationBudget, deadline);
+        if (rotationCounter < 0) {
+            Status status = deadline != 0 && System.nanoTime() > deadline ? Status.TIMED_OUT
+                    : isCancelled() ? Status.CANCELLED : Status.BUDGET_EXCEEDED;
+            return new Result(status, null, nodeCounter - rotationCounter);
+        }
+
+        closedCycle = cycle;
+        return new Result(Status.FOUND, rotateClosedCycle(initialSquare), nodeCounter + rotationCounter);
+    }
+
+    /**
+     * Search for a tour that starts with a fixed path.
+     *
+     * Firstly, the board is reset and the knight walks the fixed path.
+     * Then, the candidates of each tile after it are sorted by their
+     * accessibility score and tried in that order. When the candidates of a
+     * tile run out, the knight steps back to the previous tile, but never
+     * into the fixed path.
+     *
+     * @param prefix the first squares of the tour, usually just the start
+     * @param closedTour {@code true} if the tour has to end next to its start
+     * @param budget the maximum number of nodes to expand
+     * @param deadline the time at which the search stops, or 0 for no limit
+     * @return the outcome of the search
+     */
+    private Result search(int[] prefix, boolean closedTour, long budget, long deadline) {
+        reset();
+
+        int initialSquare = prefix[0];
+        int fixedDepth = prefix.length - 1;
+        long nodeCounter = 1;
+        int depth = fixedDepth;
+
+        for (int step = 0; step <= fixedDepth; step++) {
+            path[step] = prefix[step];
+            visit(prefix[step]);
+        }
+        if (closedTour) {
+            keepStartOpen(initialSquare);
+        }
+        if (fixedDepth > 0 && isDeadEnd(fixedDepth, closedTour)) {
+            return new Result(Status.EXHAUSTED, null, nodeCounter);
+        }
+        orderCandidates(depth);
+
+        while (true) {
+            if (depth == openSquareCount - 1 && (closedTour ? isNeighbour(path[depth], initialSquare)
+                    : endCondition == null || endCondition.test(path[depth]))) {
+                return new Result(Status.FOUND, Arrays.copyOf(path, openSquareCount), nodeCounter);
+            }
+
+            if (candidateCursor[depth] < candidateCounter[depth] && depth < openSquareCount - 1) {
+                int next = candidates[depth * moveCount + candidateCursor[depth]++];
+
+                if (nodeCounter >= budget) {
+                    return new Result(Status.BUDGET_EXCEEDED, null, nodeCounter);
+                }
+                if (nodeCounter % TIME_CHECK_INTERVAL == 0) {
+                    if (deadline != 0 && System.nanoTime() > deadline) {
+                        return new Result(Status.TIMED_OUT, null, nodeCounter);
+                    }
+                    if (isCancelled()) {
+                        return new Result(Status.CANCELLED, null, nodeCounter);
+                    }
+                }
+                nodeCounter++;
+
+                depth++;
+                path[depth] = next;
+                visit(next);
+
+                if (isDeadEnd(depth, closedTour)) {
+                    unvisit(next);
+                    depth--;
+                }
+                else {
+                    orderCandidates(depth);
+                }
+            }
+            else {
+                if (depth == fixedDepth) {
+                    return new Result(Status.EXHAUSTED, null, nodeCounter);
+                }
+
+                unvisit(path[depth]);
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Turn an open tour into a closed one by rotating its end.
+     *
+     * If the last square of the tour is a knight's move away from the square
+     * at position {@code i}, reversing the tour after position {@code i} gives
+     * another tour with the same start and a new end. Such rotations are
+     * picked at random until the end is a knight's move away from the start.
+     *
+     * @param tour the open tour, which is closed in place
+     * @param budget the maximum number of rotations
+     * @param deadline the time at which the rotations stop, or 0 for no limit
+     * @return the number of rotations made, or its negation if the tour
+     *         could not be closed
+     */
+    private long closeByRotation(int[] tour, long budget, long deadline) {
+        int length = tour.length;
+        int[] positions = new int[squareCount];
+        for (int position = 0; position < length; position++) {
+            positions[tour[position]] = position;
+        }
+
+        int[] pivots = new int[moveCount];
+        Random random = new Random(squareCount);
+        long rotationCounter = 0;
+
+        while (!isNeighbour(tour[length - 1], tour[0])) {
+            if (rotationCounter >= budget || (rotationCounter % TIME_CHECK_INTERVAL == 0
+                    && (deadline != 0 && System.nanoTime() > deadline || isCancelled()))) {
+                return -rotationCounter;
+            }
+            rotationCounter++;
+
+            int pivotCounter = 0;
+            int offset = tour[length - 1] * moveCount;
+            for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+                int neighbour = neighbours[offset + moveNumber];
+                if (neighbour >= 0 && positions[neighbour] < length - 2) {
+                    pivots[pivotCounter++] = positions[neighbour];
+                }
+            }
+            if (pivotCounter == 0) {
+                return -rotationCounter;
+            }
+
+            int pivot = pivots[random.nextInt(pivotCounter)];
+            for (int left = pivot + 1, right = length - 1; left < right; left++, right--) {
+                int square = tour[left];
+                tour[left] = tour[right];
+                tour[right] = square;
+                positions[tour[left]] = left;
+                positions[tour[right]] = right;
+            }
+        }
+
+        return rotationCounter;
+    }
+
+    /**
+     * Check if Schwenk's theorem rules out a closed knight's tour of the board.
+     *
+     * An m x n board, where m is the shorter side, has a closed knight's tour
+     * unless m and n are both odd, m is 1, 2 or 4, or m is 3 and n is 4, 6
+     * or 8. The theorem only covers the knight on a board without blocked tiles.
+     *
+     * @return {@code true} if no closed tour exists. Otherwise, {@code false}.
+     */
+    private boolean hasNoClosedKnightTour() {
+        if (!moveTable.getMoveSet().equals(MoveSet.KNIGHT) || moveTable.hasObstacles()) {
+            return false;
+        }
+
+        int shortSide = Math.min(moveTable.getRows(), moveTable.getColumns());
+        int longSide = Math.max(moveTable.getRows(), moveTable.getColumns());
+        return (shortSide % 2 != 0 && longSide % 2 != 0) || shortSide == 1 || shortSide == 2 || shortSide == 4
+                || (shortSide == 3 && (longSide == 4 || longSide == 6 || longSide == 8));
+    }
+
+    private boolean isCancelled() {
+        return cancellation != null && cancellation.getAsBoolean();
+    }
+
+    /**
+     * Get the open square closest to the centre of the board.
+     */
+    private int getCentreSquare() {
+        int centreSquare = -1;
+        for (int square = 0; square < squareCount; square++) {
+            if (!moveTable.isBlocked(square) && (centreSquare < 0 || centreDistances[square] < centreDistances[centreSquare])) {
+                centreSquare = square;
+            }
+        }
+
+        return centreSquare;
+    }
+
+    /**
+     * Rotate the closed tour found earlier so that it starts on another square.
+     *
+     * @param initialSquare the starting square of the tour
+     * @return the squares of the rotated tour
+     */
+    private int[] rotateClosedCycle(int initialSquare) {
+        int offset = 0;
+        while (closedCycle[offset] != initialSquare) {
+            offset++;
+        }
+
+        int[] rotated = new int[closedCycle.length];
+        System.arraycopy(closedCycle, offset, rotated, 0, closedCycle.length - offset);
+        System.arraycopy(closedCycle, 0, rotated, closedCycle.length - offset, offset);
+        return rotated;
+    }
+
+    /**
+     * Check if the colours of the tiles allow a tour from a starting square.
+     *
+     * @param initialSquare the starting square of the tour
+     * @return {@code true} if a tour may exist. Otherwise, {@code false}.
+     */
+    private boolean isColourBalanced(int initialSquare) {
+        long sameColour = 0, otherColour = 0;
+        int initialColour = (moveTable.toRow(initialSquare) + moveTable.toColumn(initialSquare)) % 2;
+
+        if (moveTable.hasObstacles()) {
+            for (int square = 0; square < squareCount; square++) {
+                if (!moveTable.isBlocked(square)) {
+                    if ((moveTable.toRow(square) + moveTable.toColumn(square)) % 2 == initialColour) {
+                        sameColour++;
+                    }
+                    else {
+                        otherColour++;
+                    }
+                }
+            }
+            return sameColour == otherColour || sameColour == otherColour + 1;
+        }
+
+        for (int row = 0; row < moveTable.getRows(); row++) {
+            // Tiles of the same colour as the first tile of the row
+            long firstColour = (moveTable.getColumns() + 1) / 2;
+            long secondColour = moveTable.getColumns() / 2;
+            if (row % 2 == initialColour) {
+                sameColour += firstColour;
+                otherColour += secondColour;
+            }
+            else {
+                sameColour += secondColour;
+                otherColour += firstColour;
+            }
+        }
+
+        return sameColour == otherColour || sameColour == otherColour + 1;
+    }
+
+    /**
+     * Reset the solver to an empty board.
+     */
+    private void reset() {
+        int[] initialDegrees = moveTable.getDegrees();
+
+        lowDegreeCounter = 0;
+        zeroDegreeCounter = 0;
+        for (int square = 0; square < squareCount; square++) {
+            visited[square] = moveTable.isBlocked(square);
+            degrees[square] = initialDegrees[square];
+            if (visited[square]) {
+                continue;
+            }
+            if (degrees[square] <= 1) {
+                lowDegreeCounter++;
+            }
+            if (degrees[square] == 0) {
+                zeroDegreeCounter++;
+            }
+        }
+    }
+
+    /**
+     * Identify a square as visited and update the degrees of its neighbours.
+     *
+     * @param square the square where the knight is placed
+     */
+    private void visit(int square) {
+        if (degrees[square] <= 1) {
+            lowDegreeCounter--;
+        }
+        if (degrees[square] == 0) {
+            zeroDegreeCounter--;
+        }
+        visited[square] = true;
+
+        int offset = square * moveCount;
+        for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+            int neighbour = neighbours[offset + moveNumber];
+            if (neighbour >= 0) {
+                degrees[neighbour]--;
+                if (!visited[neighbour] && degrees[neighbour] == 1) {
+                    lowDegreeCounter++;
+                }
+                if (!visited[neighbour] && degrees[neighbour] == 0) {
+                    zeroDegreeCounter++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Let the neighbours of the start count it as an onward move again.
+     *
+     * @param initialSquare the starting square of a closed tour
+     */
+    private void keepStartOpen(int initialSquare) {
+        int offset = initialSquare * moveCount;
+        for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+            int neighbour = neighbours[offset + moveNumber];
+            if (neighbour >= 0) {
+                if (!visited[neighbour] && degrees[neighbour] == 1) {
+                    lowDegreeCounter--;
+                }
+                if (!visited[neighbour] && degrees[neighbour] == 0) {
+                    zeroDegreeCounter--;
+                }
+                degrees[neighbour]++;
+            }
+        }
+    }
+
+    /**
+     * Check if a knight can move from one square to another.
+     */
+    private boolean isNeighbour(int square, int other) {
+        int offset = square * moveCount;
+        for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+            if (neighbours[offset + moveNumber] == other) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Undo {@link #visit(int)} for the last square of the path.
+     *
+     * @param square the square from which the knight is removed
+     */
+    private void unvisit(int square) {
+        int offset = square * moveCount;
+        for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+            int neighbour = neighbours[offset + moveNumber];
+            if (neighbour >= 0) {
+                if (!visited[neighbour] && degrees[neighbour] == 1) {
+                    lowDegreeCounter--;
+                }
+                if (!visited[neighbour] && degrees[neighbour] == 0) {
+                    zeroDegreeCounter--;
+                }
+                degrees[neighbour]++;
+            }
+        }
+
+        visited[square] = false;
+        if (degrees[square] <= 1) {
+            lowDegreeCounter++;
+        }
+        if (degrees[square] == 0) {
+            zeroDegreeCounter++;
+        }
+    }
+
+    /**
+     * Check if the unvisited tiles can no longer be covered from the knight's position.
+     *
+     * @param depth the position of the knight in the path
+     * @param closedTour {@code true} if the tour has to end next to its start
+     * @return {@code true} if the search should backtrack. Otherwise, {@code false}.
+     */
+    private boolean isDeadEnd(int depth, boolean closedTour) {
+        int remaining = openSquareCount - depth - 1;
+        if (closedTour && remaining > 0 && degrees[path[0]] == 0) {
+            return true;
+        }
+        if (remaining <= 1) {
+            return false;
+        }
+        if (zeroDegreeCounter > 0) {
+            return true;
+        }
+
+        int lowDegreeNeighbours = 0;
+        int offset = path[depth] * moveCount;
+        for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+            int neighbour = neighbours[offset + moveNumber];
+            if (neighbour >= 0 && !visited[neighbour] && degrees[neighbour] == 1) {
+                lowDegreeNeighbours++;
+            }
+        }
+
+        return lowDegreeCounter - lowDegreeNeighbours > 1;
+    }
+
+    /**
+     * Check if a square should be tried before another one.
+     *
+     * Squares with fewer onward moves come first. Among tied squares, the one
+     * farther from the centre of the board comes first, which keeps the knight
+     * near the edge while the middle of the board is still open.
+     *
+     * @param square the square being sorted
+     * @param other the square already in place
+     * @return {@code true} if the square should be tried first. Otherwise, {@code false}.
+     */
+    private boolean isTriedBefore(int square, int other) {
+        if (degrees[square] != degrees[other]) {
+            return degrees[square] < degrees[other];
+        }
+
+        return centreDistances[square] > centreDistances[other];
+    }
+
+    /**
+     * Sort the unvisited neighbours of a tile on the path by their accessibility score.
+     *
+     * @param depth the position of the tile in the path
+     */
+    private void orderCandidates(int depth) {
+        int base = depth * moveCount;
+        int counter = 0;
+
+        int offset = path[depth] * moveCount;
+        for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+            int next = neighbours[offset + moveNumber];
+            if (next >= 0 && !visited[next]) {
+                // Insertion sort keeps the move number order among fully tied squares
+                int position = base + counter;
+                while (position > base && isTriedBefore(next, candidates[position - 1])) {
+                    candidates[position] = candidates[position - 1];
+                    position--;
+                }
+                candidates[position] = next;
+                counter++;
+            }
+        }
+
+        candidateCounter[depth] = counter;
+        candidateCursor[depth] = 0;
+    }
+
+    /**
+     * The outcome of a search for a tour.
+     */
+    public static class Result {
+        private final Status status;
+        private final int[] path;
+        private final long nodeCounter;
+
+        Result(Status status, int[] path, long nodeCounter) {
+            this.status = status;
+            this.path = path;
+            this.nodeCounter = nodeCounter;
+        }
+
+        /**
+         * Get the outcome of the search.
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Check if a tour has been found.
+         */
+        public boolean isFound() {
+            return status == Status.FOUND;
+        }
+
+        /**
+         * Get the squares of the tour in the order they are visited.
+         *
+         * @return the path of the tour, or {@code null} if no tour was found
+         */
+        public int[] getPath() {
+            return path;
+        }
+
+        /**
+         * Get the number of nodes expanded by the search.
+         */
+        public long getNodeCounter() {
+            return nodeCounter;
+        }
+    }
+
+    /**
+     * Search for a tour from every starting square and print the outcome.
+     *
+     * Usage: {@code java BacktrackingSolver [rows] [columns] [timeoutMillis] [open|closed]}
+     */
+    public static void main(String[] args) {
+        int rows = args.length >= 1 ? Integer.parseInt(args[0]) : TourEngine.DEFAULT_SIZE;
+        int columns = args.length >= 2 ? Integer.parseInt(args[1]) : rows;
+        long timeoutMillis = args.length >= 3 ? Long.parseLong(args[2]) : 1000;
+        boolean closed = args.length >= 4 && args[3].equals("closed");
+
+        BacktrackingSolver solver = new BacktrackingSolver(rows, columns);
+        solver.setTimeout(timeoutMillis);
+        solver.setClosed(closed);
+
+        int fullTourCounter = 0;
+        long totalNodes = 0;
+        long startTime = System.nanoTime();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                Result result = solver.solve(row, column);
+                totalNodes += result.getNodeCounter();
+                if (result.isFound()) {
+                    fullTourCounter++;
+                }
+                System.out.print(result.isFound() ? 'O' : result.getStatus() == Status.EXHAUSTED ? '-' : 'X');
+            }
+            System.out.println();
+        }
+
+        long elapsedNanos = System.nanoTime() - startTime;
+        System.out.printf("%s tours: %d/%d (%.1f%%), %d nodes in %.3f ms, %.3f ms per start%n",
+                closed ? "Closed" : "Full", fullTourCounter, rows * columns,
+                100.0 * fullTourCounter / (rows * columns), totalNodes, elapsedNanos / 1e6,
+                elapsedNanos / 1e6 / (rows * columns));
+    }
+
+}
@@ -0,0 +1,308 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import javax.management.JMException;
+
+/**
+ * Command-line entry point for making many tours without a display.
+ *
+ * The tours from the chosen starting tiles are spread over a fork/join pool,
+ * as in {@link ParallelTourRunner}, with one engine and one strategy per
+ * worker thread. Each tour is timed on its own, and the report shows the
+ * throughput in tours and moves per second, the latency percentiles of a
+ * single tour and the number of full tours.
+ */
+public class BatchRunner {
+    private final MoveTable moveTable;
+    private final String strategyName;
+    private final int threads;
+    private String format = "none";
+    private Path outputDirectory;
+    private TourMetrics metrics;
+
+    /**
+     * Construct a batch runner.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     * @param strategyName the name of the strategy, as accepted by {@link MoveStrategy#forName(String)}
+     * @param threads the number of worker threads
+     */
+    public BatchRunner(int rows, int columns, String strategyName, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+
+        MoveStrategy.forName(strategyName);
+        this.moveTable = new MoveTable(rows, columns);
+        this.strategyName = strategyName;
+        this.threads = threads;
+    }
+
+    /**
+     * Write every tour to a directory, one file per starting tile.
+     *
+     * @param format {@code csv} or {@code binary}, or {@code none} to keep
+     *               the tours in memory only
+     * @param outputDirectory the directory where the files are written
+     */
+    public void setOutput(String format, Path outputDirectory) {
+        if (!format.equals("none") && !format.equals("csv") && !format.equals("binary")) {
+            throw new IllegalArgumentException("Unknown output format: " + format);
+        }
+
+        this.format = format;
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * Record the work of every engine in shared metrics.
+     *
+     * @param metrics the metrics to update, or {@code null} to record nothing
+     */
+    public void setMetrics(TourMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Parse a list of starting tiles.
+     *
+     * @param starts {@code all}, or tiles as {@code row:column} separated by commas
+     * @return the square indices of the starting tiles
+     */
+    public int[] parseStarts(String starts) {
+        if (starts.equals("all")) {
+            return IntStream.range(0, moveTable.getSquareCount()).toArray();
+        }
+
+        List<Integer> squares = new ArrayList<>();
+        for (String tile : starts.split(",")) {
+            String[] coordinates = tile.split(":");
+            if (coordinates.length != 2) {
+                throw new IllegalArgumentException("Invalid starting tile: " + tile);
+            }
+            int row, column;
+            try {
+                row = Integer.parseInt(coordinates[0].trim());
+                column = Integer.parseInt(coordinates[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid starting tile: " + tile, e);
+            }
+            if (row < 0 || column < 0 || row >= moveTable.getRows() || column >= moveTable.getColumns()) {
+                throw new IllegalArgumentException("Starting tile outside the board: " + tile);
+            }
+            squares.add(moveTable.toSquare(row, column));
+        }
+
+        return squares.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Make a tour from each starting square.
+     *
+     * A {@code random} strategy is seeded from its own seed and the starting
+     * square of each tour, so a batch can be repeated.
+     *
+     * @param starts the square indices of the starting tiles
+     * @return the timings and outcomes of the tours
+     */
+    public Report run(int[] starts) {
+        long[] latencies = new long[starts.length];
+        int[] tileCounters = new int[starts.length];
+        ThreadLocal<TourEngine> engines = ThreadLocal.withInitial(() -> {
+            TourEngine engine = new TourEngine(moveTable);
+            engine.setMetrics(metrics);
+            return engine;
+        });
+        ThreadLocal<MoveStrategy> strategies = ThreadLocal.withInitial(() -> MoveStrategy.forName(strategyName));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        long startTime = System.nanoTime();
+        try {
+            pool.submit(() -> IntStream.range(0, starts.length).parallel().forEach(i -> {
+                TourEngine engine = engines.get();
+                MoveStrategy strategy = strategies.get();
+                if (strategy instanceof RandomTieStrategy) {
+                    // Seeded by the starting square, so a batch makes the same tours on any number of threads
+                    long seed = ((RandomTieStrategy) strategy).getSeed() * moveTable.getSquareCount() + starts[i];
+                    strategy = new RandomTieStrategy(seed);
+                }
+                long tourStartTime = System.nanoTime();
+                engine.runTour(moveTable.toRow(starts[i]), moveTable.toColumn(starts[i]), strategy);
+                latencies[i] = System.nanoTime() - tourStartTime;
+                tileCounters[i] = engine.getVisitedTileCounter();
+
+                if (outputDirectory != null && !format.equals("none")) {
+                    write(engine, starts[i]);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running tours", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to run tours", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        return new Report(moveTable.getSquareCount(), latencies, tileCounters, System.nanoTime() - startTime);
+    }
+
+    private void write(TourEngine engine, int square) {
+        String name = moveTable.toRow(square) + "-" + moveTable.toColumn(square) + (format.equals("csv") ? ".csv" : ".ktr");
+
+        try (OutputStream output = Files.newOutputStream(outputDirectory.resolve(name));
+             TourSink sink = format.equals("csv") ? new CsvTourWriter(output) : new BinaryTourWriter(output)) {
+            engine.writeTour(sink);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write tour " + name, e);
+        }
+    }
+
+    /**
+     * The timings and outcomes of a batch of tours.
+     */
+    public static class Report {
+        private final int squareCount;
+        private final long[] sortedLatencies;
+        private final long elapsedNanos;
+        private final int tourCounter;
+        private final int fullTourCounter;
+        private final long moveCounter;
+
+        Report(int squareCount, long[] latencies, int[] tileCounters, long elapsedNanos) {
+            this.squareCount = squareCount;
+            this.sortedLatencies = latencies.clone();
+            this.elapsedNanos = elapsedNanos;
+            this.tourCounter = latencies.length;
+            Arrays.sort(sortedLatencies);
+
+            int fullTours = 0;
+            long moves = 0;
+            for (int tileCounter : tileCounters) {
+                if (tileCounter == squareCount) {
+                    fullTours++;
+                }
+                moves += Math.max(0, tileCounter - 1);
+            }
+            this.fullTourCounter = fullTours;
+            this.moveCounter = moves;
+        }
+
+        /**
+         * Get the number of tours that were made.
+         */
+        public int getTourCounter() {
+            return tourCounter;
+        }
+
+        /**
+         * Get the number of tours that visited every tile.
+         */
+        public int getFullTourCounter() {
+            return fullTourCounter;
+        }
+
+        /**
+         * Get the number of moves made by all the tours.
+         */
+        public long getMoveCounter() {
+            return moveCounter;
+        }
+
+        /**
+         * Get the wall-clock time taken by the batch in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Get the number of tours made per second of wall-clock time.
+         */
+        public double getToursPerSecond() {
+            return tourCounter * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Get the number of moves made per second of wall-clock time.
+         */
+        public double getMovesPerSecond() {
+            return moveCounter * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Get a percentile of the time taken by a single tour.
+         *
+         * @param percentile a number between 0 and 100
+         * @return the latency in nanoseconds, or 0 if no tour was made
+         */
+        public long getLatencyPercentile(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+
+            int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(sortedLatencies.length - 1, index))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Full tours: %d/%d%n", fullTourCounter, tourCounter)
+                    + String.format("Throughput: %.1f tours/s, %.1f moves/s in %.3f ms%n", getToursPerSecond(),
+                            getMovesPerSecond(), elapsedNanos / 1e6)
+                    + String.format("Latency: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms",
+                            getLatencyPercentile(50) / 1e6, getLatencyPercentile(90) / 1e6,
+                            getLatencyPercentile(99) / 1e6, getLatencyPercentile(100) / 1e6);
+        }
+    }
+
+    /**
+     * Make a batch of tours and print the report.
+     *
+     * Usage: {@code java BatchRunner [rows] [columns] [starts] [strategy] [threads] [format] [directory] [metrics]}
+     *
+     * The starts are {@code all} or tiles such as {@code 0:0,3:4}, the strategy
+     * is a name accepted by {@link MoveStrategy#forName(String)}, and the format
+     * is {@code none}, {@code csv} or {@code binary}. If metrics is {@code true},
+     * the solver metrics are registered with JMX and printed after the report.
+     */
+    public static void main(String[] args) throws IOException, JMException {
+        int rows = args.length >= 1 ? Integer.parseInt(args[0]) : TourEngine.DEFAULT_SIZE;
+        int columns = args.length >= 2 ? Integer.parseInt(args[1]) : rows;
+        String starts = args.length >= 3 ? args[2] : "all";
+        String strategy = args.length >= 4 ? args[3] : "optimized";
+        int threads = args.length >= 5 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        String format = args.length >= 6 ? args[5] : "none";
+        Path directory = Path.of(args.length >= 7 ? args[6] : "tours");
+        boolean withMetrics = args.length >= 8 && Boolean.parseBoolean(args[7]);
+
+        BatchRunner runner = new BatchRunner(rows, columns, strategy, threads);
+        if (!format.equals("none")) {
+            Files.createDirectories(directory);
+            runner.setOutput(format, directory);
+        }
+        TourMetrics metrics = null;
+        if (withMetrics) {
+            metrics = new TourMetrics();
+            metrics.register("BatchRunner");
+            runner.setMetrics(metrics);
+        }
+
+        Report report = runner.run(runner.parseStarts(starts));
+        System.out.printf("%dx%d board, %s strategy, %d threads%n", rows, columns, strategy, threads);
+        System.out.println(report);
+        if (metrics != null) {
+            System.out.println(metrics.snapshot());
+        }
+    }
+
+}
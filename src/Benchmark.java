@@ -0,0 +1,356 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Micro-benchmark suite for the hot paths of the heuristic approach.
+ *
+ * Every benchmark is run for a number of warmup iterations, which are
+ * discarded, and then for a number of measured iterations of a fixed duration.
+ * The report shows the throughput in operations per second, the memory
+ * allocated by the benchmark thread per operation and per second, and the
+ * share of operations that succeeded, e.g. the tours that visited every tile.
+ *
+ * Operations are run in batches, so the clock is read rarely enough not to
+ * dominate the cost of the cheaper benchmarks.
+ */
+public class Benchmark {
+    public static final int WARMUP_ITERATIONS = 5;
+    public static final int MEASUREMENT_ITERATIONS = 5;
+    public static final int ITERATION_MILLIS = 1000;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final List<Result> results = new ArrayList<>();
+
+    /**
+     * A single operation to be measured.
+     */
+    public interface Operation {
+
+        /**
+         * Run the operation once.
+         *
+         * @return {@code true} if the operation succeeded. Otherwise, {@code false}.
+         */
+        boolean run();
+    }
+
+    /**
+     * Construct a benchmark with the default number and duration of iterations.
+     */
+    public Benchmark() {
+        this(WARMUP_ITERATIONS, MEASUREMENT_ITERATIONS, ITERATION_MILLIS);
+    }
+
+    /**
+     * Construct a benchmark with a custom number and duration of iterations.
+     *
+     * @param warmupIterations the number of iterations that are discarded
+     * @param measurementIterations the number of iterations that are reported
+     * @param iterationMillis the duration of every iteration in milliseconds
+     */
+    public Benchmark(int warmupIterations, int measurementIterations, int iterationMillis) {
+        if (warmupIterations < 0 || measurementIterations <= 0 || iterationMillis <= 0) {
+            throw new IllegalArgumentException("Invalid iterations: " + warmupIterations + " warmup, "
+                    + measurementIterations + " measured of " + iterationMillis + " ms");
+        }
+
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+
+        if (THREADS.isThreadAllocatedMemorySupported()) {
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    /**
+     * Get the results of the benchmarks run so far.
+     */
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * Measure an operation and record its result.
+     *
+     * @param name the name under which the result is reported
+     * @param operation the operation to measure
+     * @return the result of the benchmark
+     */
+    public Result measure(String name, Operation operation) {
+        int batchSize = 1;
+        long batchNanos = iterationNanos / 100;
+        while (batchSize < (1 << 30)) {
+            long startTime = System.nanoTime();
+            runBatch(operation, batchSize);
+            if (System.nanoTime() - startTime >= batchNanos) {
+                break;
+            }
+            batchSize *= 2;
+        }
+
+        for (int iteration = 0; iteration < warmupIterations; iteration++) {
+            runIteration(operation, batchSize, new long[3]);
+        }
+
+        double[] opsPerSecond = new double[measurementIterations];
+        long[] totals = new long[3];
+        for (int iteration = 0; iteration < measurementIterations; iteration++) {
+            long[] counters = new long[3];
+            runIteration(operation, batchSize, counters);
+            opsPerSecond[iteration] = counters[0] * 1e9 / counters[2];
+
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += counters[i];
+            }
+        }
+
+        Result result = new Result(name, opsPerSecond, totals[0], totals[1], totals[2], getAllocatedBytes(operation, batchSize));
+        results.add(result);
+        return result;
+    }
+
+    /**
+     * Run operations in batches until the iteration time has passed.
+     *
+     * @param counters the operations, successes and elapsed nanoseconds, which are incremented
+     */
+    private void runIteration(Operation operation, int batchSize, long[] counters) {
+        long startTime = System.nanoTime(), elapsed;
+        do {
+            counters[0] += batchSize;
+            counters[1] += runBatch(operation, batchSize);
+            elapsed = System.nanoTime() - startTime;
+        } while (elapsed < iterationNanos);
+        counters[2] += elapsed;
+    }
+
+    private static int runBatch(Operation operation, int batchSize) {
+        int successCounter = 0;
+        for (int i = 0; i < batchSize; i++) {
+            if (operation.run()) {
+                successCounter++;
+            }
+        }
+
+        return successCounter;
+    }
+
+    /**
+     * Measure the memory allocated by one batch of operations on the current thread.
+     *
+     * @return the number of bytes per operation, or -1 if it cannot be measured
+     */
+    private static double getAllocatedBytes(Operation operation, int batchSize) {
+        if (!THREADS.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(threadId);
+        runBatch(operation, batchSize);
+        long after = THREADS.getThreadAllocatedBytes(threadId);
+
+        return (double) (after - before) / batchSize;
+    }
+
+    /**
+     * The measured performance of an operation.
+     */
+    public static class Result {
+        private final String name;
+        private final double[] opsPerSecond;
+        private final long operationCounter;
+        private final long successCounter;
+        private final long elapsedNanos;
+        private final double bytesPerOperation;
+
+        Result(String name, double[] opsPerSecond, long operationCounter, long successCounter,
+               long elapsedNanos, double bytesPerOperation) {
+            this.name = name;
+            this.opsPerSecond = opsPerSecond;
+            this.operationCounter = operationCounter;
+            this.successCounter = successCounter;
+            this.elapsedNanos = elapsedNanos;
+            this.bytesPerOperation = bytesPerOperation;
+        }
+
+        /**
+         * Get the name of the benchmark.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the mean throughput of the measured iterations in operations per second.
+         */
+        public double getOpsPerSecond() {
+            return operationCounter * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Get the standard deviation of the throughput between the measured iterations.
+         */
+        public double getOpsPerSecondDeviation() {
+            double mean = 0;
+            for (double value : opsPerSecond) {
+                mean += value / opsPerSecond.length;
+            }
+
+            double variance = 0;
+            for (double value : opsPerSecond) {
+                variance += (value - mean) * (value - mean) / opsPerSecond.length;
+            }
+
+            return Math.sqrt(variance);
+        }
+
+        /**
+         * Get the number of bytes allocated per operation, or -1 if it cannot be measured.
+         */
+        public double getBytesPerOperation() {
+            return bytesPerOperation;
+        }
+
+        /**
+         * Get the allocation rate in megabytes per second, or -1 if it cannot be measured.
+         */
+        public double getAllocationRate() {
+            return bytesPerOperation < 0 ? -1 : bytesPerOperation * getOpsPerSecond() / (1 << 20);
+        }
+
+        /**
+         * Get the share of operations that succeeded, between 0 and 1.
+         */
+        public double getSuccessRate() {
+            return (double) successCounter / operationCounter;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %14.1f +- %-12.1f %10.1f %10.1f %8.1f%%", name, getOpsPerSecond(),
+                    getOpsPerSecondDeviation(), getBytesPerOperation(), getAllocationRate(), getSuccessRate() * 100);
+        }
+    }
+
+    /**
+     * Get a table header matching {@link Result#toString()}.
+     */
+    public static String getHeader() {
+        return String.format("%-40s %14s    %-12s %10s %10s %9s", "Benchmark", "ops/s", "error", "B/op", "MB/s", "success");
+    }
+
+    /**
+     * Place the knight of an empty engine and make some heuristic moves, so the
+     * next move is chosen from a board that is partly visited.
+     */
+    private static TourEngine prepareEngine(int size, int moveCounter) {
+        TourEngine engine = new TourEngine(size, size);
+        engine.start(0, 0);
+        for (int move = 0; move < moveCounter; move++) {
+            engine.moveKnight(true);
+        }
+
+        return engine;
+    }
+
+    /**
+     * Run every benchmark whose name contains the filter and print the results.
+     *
+     * Usage: {@code java Benchmark [filter] [warmupIterations] [measurementIterations] [iterationMillis]}
+     */
+    public static void main(String[] args) {
+        String filter = args.length >= 1 ? args[0] : "";
+        int warmupIterations = args.length >= 2 ? Integer.parseInt(args[1]) : WARMUP_ITERATIONS;
+        int measurementIterations = args.length >= 3 ? Integer.parseInt(args[2]) : MEASUREMENT_ITERATIONS;
+        int iterationMillis = args.length >= 4 ? Integer.parseInt(args[3]) : ITERATION_MILLIS;
+
+        Benchmark benchmark = new Benchmark(warmupIterations, measurementIterations, iterationMillis);
+        List<String> names = new ArrayList<>();
+        List<Operation> operations = new ArrayList<>();
+
+        TourEngine midTour = prepareEngine(TourEngine.DEFAULT_SIZE, 20);
+        names.add("getOptimalMoveNumber/heuristic");
+        operations.add(() -> midTour.getOptimalMoveNumber(false) >= 0);
+        names.add("getOptimalMoveNumber/optimized");
+        operations.add(() -> midTour.getOptimalMoveNumber(true) >= 0);
+
+        Knight knight = new Knight("knight.png", 0, 0);
+        int[][] nextTiles = new int[Knight.MAX_MOVE_NUM][2];
+        int[] square = new int[1];
+        names.add("Knight.nextDestinations");
+        operations.add(() -> {
+            int next = square[0]++ & 63;
+            return knight.nextDestinations(next >> 3, next & 7)[Knight.MAX_MOVE_NUM - 1][0] >= 0;
+        });
+        names.add("Knight.fillDestinations");
+        operations.add(() -> {
+            int next = square[0]++ & 63;
+            return Knight.fillDestinations(next >> 3, next & 7, nextTiles)[Knight.MAX_MOVE_NUM - 1][0] >= 0;
+        });
+
+        for (int size : new int[]{ 8, 50, 200, 1000 }) {
+            TourEngine engine = new TourEngine(size, size);
+            names.add("runTour/" + size + "x" + size + "/heuristic");
+            operations.add(() -> engine.runTour(0, 0, false));
+            names.add("runTour/" + size + "x" + size + "/optimized");
+            operations.add(() -> engine.runTour(0, 0, true));
+        }
+
+        for (boolean optimized : new boolean[]{ false, true }) {
+            TourEngine engine = new TourEngine();
+            int[] start = new int[1];
+            names.add("allStarts/8x8/" + (optimized ? "optimized" : "heuristic"));
+            operations.add(() -> {
+                int next = start[0]++ & 63;
+                return engine.runTour(next >> 3, next & 7, optimized);
+            });
+        }
+
+        for (boolean optimized : new boolean[]{ false, true }) {
+            BitboardEngine engine = new BitboardEngine();
+            int[] start = new int[1];
+            names.add("bitboard/allStarts/8x8/" + (optimized ? "optimized" : "heuristic"));
+            operations.add(() -> {
+                int next = start[0]++ & 63;
+                return engine.runTour(next >> 3, next & 7, optimized);
+            });
+        }
+
+        for (String strategyName : new String[]{ "heuristic", "optimized", "pohl:2", "squirrel", "random:1" }) {
+            for (int size : new int[]{ 8, 20 }) {
+                MoveStrategy strategy = MoveStrategy.forName(strategyName);
+                TourEngine engine = new TourEngine(size, size);
+                int[] start = new int[1];
+                names.add("strategy/" + strategyName + "/allStarts/" + size + "x" + size);
+                operations.add(() -> {
+                    int next = start[0]++ % (size * size);
+                    return engine.runTour(next / size, next % size, strategy);
+                });
+            }
+        }
+
+        for (String piece : new String[]{ "knight", "zebra", "knight+camel" }) {
+            TourEngine engine = new TourEngine(new MoveTable(16, 16, MoveSet.forName(piece)));
+            int[] start = new int[1];
+            names.add("piece/" + piece + "/allStarts/16x16");
+            operations.add(() -> {
+                int next = start[0]++ & 255;
+                return engine.runTour(next >> 4, next & 15, true);
+            });
+        }
+
+        System.out.println(getHeader());
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i).contains(filter)) {
+                System.out.println(benchmark.measure(names.get(i), operations.get(i)));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sink that writes a tour in a compact binary format.
+ *
+ * The file starts with a header of the magic number {@code KTR2}, the number
+ * of rows and columns of the board, and the starting row and column, each as
+ * a big-endian int, followed by the name of the piece as accepted by
+ * {@link MoveSet#forName(String)}, in UTF-8 after its length as a big-endian
+ * short. Every following tile is stored as the move number of the piece that
+ * reaches it from the previous tile, packed in as few bits as the piece needs
+ * (3 for a knight, see {@link Knight#horizontal} and {@link Knight#vertical})
+ * starting from the lowest bit of each byte. The file ends with the number of
+ * moves as a big-endian long, so a tour can be streamed without knowing its
+ * length up front.
+ *
+ * A knight's tour of a board with a million tiles takes about 375 KB.
+ */
+public class BinaryTourWriter implements TourSink {
+    public static final int MAGIC = 0x4b545232;
+    public static final int HEADER_LENGTH = 20;
+    public static final int TRAILER_LENGTH = 8;
+    private static final int BUFFER_LENGTH = 1 << 16;
+    private final OutputStream output;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_LENGTH);
+    private int rows = -1;
+    private int columns = -1;
+    private MoveSet moveSet;
+    private int moveBits;
+    private int currentRow = -1;
+    private int currentColumn = -1;
+    private long moveCounter;
+    private int bitBuffer;
+    private int bitCounter;
+
+    /**
+     * Construct a writer on top of an output stream.
+     *
+     * @param output the stream to which the tour is written
+     */
+    public BinaryTourWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    @Override
+    public void begin(int rows, int columns) {
+        begin(rows, columns, MoveSet.KNIGHT);
+    }
+
+    @Override
+    public void begin(int rows, int columns, MoveSet moveSet) {
+        this.rows = rows;
+        this.columns = columns;
+        this.moveSet = moveSet;
+        this.moveBits = moveSet.getMoveBits();
+    }
+
+    @Override
+    public void visit(int row, int column) throws IOException {
+        if (currentRow < 0) {
+            if (rows < 0) {
+                throw new IllegalStateException("The board size is unknown; call begin() first");
+            }
+            writeHeader(row, column);
+        }
+        else {
+            int moveNumber = moveSet.indexOf(row - currentRow, column - currentColumn);
+            if (moveNumber < 0) {
+                throw new IllegalArgumentException("Not a move of the " + moveSet.getName() + ": ("
+                        + currentRow + ", " + currentColumn + ") to (" + row + ", " + column + ")");
+            }
+
+            bitBuffer |= moveNumber << bitCounter;
+            bitCounter += moveBits;
+            if (bitCounter >= 8) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                buffer.put((byte) bitBuffer);
+                bitBuffer >>>= 8;
+                bitCounter -= 8;
+            }
+            moveCounter++;
+        }
+
+        currentRow = row;
+        currentColumn = column;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (currentRow < 0) {
+            writeHeader(-1, -1);
+        }
+        if (buffer.remaining() < 1 + TRAILER_LENGTH) {
+            flush();
+        }
+        if (bitCounter > 0) {
+            buffer.put((byte) bitBuffer);
+        }
+        buffer.putLong(moveCounter);
+        flush();
+        output.close();
+    }
+
+    private void writeHeader(int row, int column) {
+        buffer.putInt(MAGIC);
+        buffer.putInt(rows);
+        buffer.putInt(columns);
+        buffer.putInt(row);
+        buffer.putInt(column);
+        byte[] name = moveSet.getName().getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+    }
+
+    private void flush() throws IOException {
+        output.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    /**
+     * Get the number of bytes taken by a knight's tour, so it can be announced before it is written.
+     *
+     * @param tileCounter the number of tiles of the tour
+     * @return the length of the header, the packed moves and the trailer
+     */
+    public static long getLength(long tileCounter) {
+        return getLength(tileCounter, MoveSet.KNIGHT);
+    }
+
+    /**
+     * Get the number of bytes taken by a tour of any piece.
+     *
+     * @param tileCounter the number of tiles of the tour
+     * @param moveSet the moves of the piece that makes the tour
+     * @return the length of the header, the packed moves and the trailer
+     */
+    public static long getLength(long tileCounter, MoveSet moveSet) {
+        long moveCounter = Math.max(0, tileCounter - 1);
+        return getHeaderLength(moveSet) + (moveCounter * moveSet.getMoveBits() + 7) / 8 + TRAILER_LENGTH;
+    }
+
+    /**
+     * Get the length of the header, including the name of the piece.
+     */
+    static int getHeaderLength(MoveSet moveSet) {
+        return HEADER_LENGTH + Short.BYTES + moveSet.getName().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+}
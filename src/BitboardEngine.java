@@ -0,0 +1,318 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Headless engine for making a knight's tour of a board with at most 64 tiles.
+ *
+ * The visited tiles are kept as the bits of a single {@code long}, and the
+ * moves from every square as a precomputed attack mask, so the board bounds
+ * and the visited state are never checked one tile at a time. The
+ * accessibility score of a tile is {@code Long.bitCount(attacks[square] & ~visited)}.
+ *
+ * The engine makes the same choices as a {@link TourEngine}: ties between
+ * squares of equal score are broken by the lowest move number, so both
+ * engines make the same tour from the same starting tile.
+ *
+ * The blocked tiles of a {@link MoveTable} with obstacles have no moves into
+ * them, so they are never entered, and a tour is full once every open tile
+ * has been visited.
+ */
+public class BitboardEngine {
+    public static final int MAX_SQUARE_COUNT = Long.SIZE;
+    private static final int MOVE_BITS = Integer.numberOfTrailingZeros(MoveSet.MAX_SIZE);
+    private static final int MOVE_MASK = MoveSet.MAX_SIZE - 1;
+    private final MoveTable moveTable;
+    private final int columns;
+    private final int squareCount;
+    private final long[] attacks;
+    private final byte[] moveNumbers;
+    private final int[] path;
+    private long visited;
+    private int visitedTileCounter;
+    private int currentSquare = -1;
+
+    /**
+     * Construct an engine for a standard 8x8 board.
+     */
+    public BitboardEngine() {
+        this(TourEngine.DEFAULT_SIZE, TourEngine.DEFAULT_SIZE);
+    }
+
+    /**
+     * Construct an engine for a rectangular board.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     */
+    public BitboardEngine(int rows, int columns) {
+        this(new MoveTable(rows, columns));
+    }
+
+    /**
+     * Construct an engine on top of an existing move table.
+     *
+     * @param moveTable the precomputed moves of a board with at most 64 tiles
+     */
+    public BitboardEngine(MoveTable moveTable) {
+        if (moveTable.getSquareCount() > MAX_SQUARE_COUNT) {
+            throw new IllegalArgumentException("Board does not fit in a bitboard: "
+                    + moveTable.getRows() + "x" + moveTable.getColumns());
+        }
+
+        this.moveTable = moveTable;
+        this.columns = moveTable.getColumns();
+        this.squareCount = moveTable.getSquareCount();
+        this.attacks = new long[squareCount];
+        this.moveNumbers = new byte[squareCount * MAX_SQUARE_COUNT];
+        this.path = new int[squareCount];
+
+        for (int square = 0; square < squareCount; square++) {
+            for (int moveNumber = 0; moveNumber < moveTable.getMoveCount(); moveNumber++) {
+                int next = moveTable.getNeighbour(square, moveNumber);
+                if (next >= 0) {
+                    attacks[square] |= 1L << next;
+                    moveNumbers[square * MAX_SQUARE_COUNT + next] = (byte) moveNumber;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the move table used by the engine.
+     */
+    public MoveTable getMoveTable() {
+        return moveTable;
+    }
+
+    /**
+     * Get the squares reachable from a square on an empty board.
+     *
+     * @param square the square from which the knight moves
+     * @return a mask with the bit of every reachable square set
+     */
+    public long getAttacks(int square) {
+        return attacks[square];
+    }
+
+    /**
+     * Get the visited squares.
+     *
+     * @return a mask with the bit of every visited square set
+     */
+    public long getVisited() {
+        return visited;
+    }
+
+    /**
+     * Reset the engine to an empty board.
+     */
+    public void reset() {
+        visited = 0;
+        visitedTileCounter = 0;
+        currentSquare = -1;
+    }
+
+    /**
+     * Check if a tile has been visited.
+     *
+     * @param row the row where the tile is located
+     * @param column the column where the tile is located
+     * @return {@code true} if the tile can be visited.
+     *          Otherwise, {@code false}
+     */
+    public boolean isNotVisited(int row, int column) {
+        return (visited & 1L << (row * columns + column)) == 0;
+    }
+
+    /**
+     * Get the number of tiles visited so far.
+     */
+    public int getVisitedTileCounter() {
+        return visitedTileCounter;
+    }
+
+    /**
+     * Check if every tile of the board has been visited.
+     */
+    public boolean isFullTour() {
+        return visitedTileCounter >= moveTable.getOpenSquareCount();
+    }
+
+    /**
+     * Get the squares visited so far, in the order they were visited.
+     *
+     * @return a copy of the path of the knight
+     */
+    public int[] getPath() {
+        return Arrays.copyOf(path, visitedTileCounter);
+    }
+
+    /**
+     * Write the tiles visited so far to a sink, in the order they were visited.
+     *
+     * @param sink the receiver of the tiles, which is started but not closed
+     * @throws IOException if the sink fails to write a tile
+     */
+    public void writeTour(TourSink sink) throws IOException {
+        sink.begin(moveTable.getRows(), columns, moveTable.getMoveSet());
+        for (int step = 0; step < visitedTileCounter; step++) {
+            sink.visit(path[step] / columns, path[step] % columns);
+        }
+    }
+
+    /**
+     * Get the square where the knight is currently located.
+     */
+    public int getCurrentSquare() {
+        return currentSquare;
+    }
+
+    private void markAsVisited(int square) {
+        path[visitedTileCounter++] = square;
+        visited |= 1L << square;
+        currentSquare = square;
+    }
+
+    /**
+     * Place the knight on the first tile of a tour.
+     *
+     * @param row the starting row of the tour
+     * @param column the starting column of the tour
+     * @return {@code true} if the tile is a valid start. Otherwise, {@code false}.
+     */
+    public boolean start(int row, int column) {
+        if (visitedTileCounter == 0 && row >= 0 && column >= 0 && row < moveTable.getRows() && column < columns
+                && !moveTable.isBlocked(row * columns + column)) {
+            markAsVisited(row * columns + column);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Move the knight to a specified square.
+     *
+     * @param square the square to which the knight moves
+     * @return {@code true} if the move is an L-shaped move to an unvisited
+     *         tile inside the board. Otherwise, {@code false}.
+     */
+    public boolean moveTo(int square) {
+        if (visitedTileCounter == 0 || square < 0 || square >= squareCount
+                || (attacks[currentSquare] & ~visited & 1L << square) == 0) {
+            return false;
+        }
+
+        markAsVisited(square);
+        return true;
+    }
+
+    /**
+     * Get the minimum accessibility score among the unvisited tiles reachable from a square.
+     *
+     * @param square the square from which the next destinations are read
+     * @param unvisited the mask of the unvisited squares
+     * @return the lowest accessibility score among the tiles
+     */
+    private int getMinAccessibilityScore(int square, long unvisited) {
+        int minScore = moveTable.getMoveCount();
+
+        for (long next = attacks[square] & unvisited; next != 0; next &= next - 1) {
+            minScore = Math.min(minScore, Long.bitCount(attacks[Long.numberOfTrailingZeros(next)] & unvisited));
+        }
+
+        return minScore;
+    }
+
+    /**
+     * Get the optimal move number from the knight's current position.
+     *
+     * Every unvisited destination is scored by a single mask and bit count, and
+     * the lowest score wins. A score and a move number are packed into one key,
+     * so ties are broken by the lowest move number without a branch. If
+     * optimization mode is on and several destinations share the lowest score,
+     * they are compared by the minimum score of their own destinations instead.
+     *
+     * @param optimizedTiedSquares turn on/off optimization mode when "tied" squares
+     *                             are encountered
+     * @return the optimal move number that a knight can make,
+     *         or -1 if the knight is out of valid moves
+     */
+    public int getOptimalMoveNumber(boolean optimizedTiedSquares) {
+        long unvisited = ~visited;
+        long candidates = attacks[currentSquare] & unvisited;
+        if (candidates == 0) {
+            return -1;
+        }
+
+        int offset = currentSquare * MAX_SQUARE_COUNT;
+        int bestKey = Integer.MAX_VALUE;
+        boolean tied = false;
+        for (long next = candidates; next != 0; next &= next - 1) {
+            int square = Long.numberOfTrailingZeros(next);
+            int key = Long.bitCount(attacks[square] & unvisited) << MOVE_BITS | moveNumbers[offset + square];
+
+            if (key >>> MOVE_BITS < bestKey >>> MOVE_BITS) {
+                bestKey = key;
+                tied = false;
+            }
+            else if (key >>> MOVE_BITS == bestKey >>> MOVE_BITS) {
+                bestKey = Math.min(bestKey, key);
+                tied = true;
+            }
+        }
+
+        if (optimizedTiedSquares && tied) {
+            int minScore = bestKey >>> MOVE_BITS;
+            bestKey = Integer.MAX_VALUE;
+            for (long next = candidates; next != 0; next &= next - 1) {
+                int square = Long.numberOfTrailingZeros(next);
+                if (Long.bitCount(attacks[square] & unvisited) == minScore) {
+                    bestKey = Math.min(bestKey, getMinAccessibilityScore(square, unvisited) << MOVE_BITS | moveNumbers[offset + square]);
+                }
+            }
+        }
+
+        return bestKey & MOVE_MASK;
+    }
+
+    /**
+     * Move the knight based on the heuristic approach.
+     *
+     * @param optimizedTiedSquares turn on/off optimization mode when "tied" squares
+     *                             are encountered
+     * @return the move number made by the knight, or -1 if the knight
+     *         is out of valid moves
+     */
+    public int moveKnight(boolean optimizedTiedSquares) {
+        int optimalMoveNumber = getOptimalMoveNumber(optimizedTiedSquares);
+
+        if (optimalMoveNumber > -1) {
+            markAsVisited(moveTable.getNeighbour(currentSquare, optimalMoveNumber));
+        }
+
+        return optimalMoveNumber;
+    }
+
+    /**
+     * Make a whole tour of an empty board using the heuristic approach.
+     *
+     * @param initialRow the starting row of the tour
+     * @param initialColumn the starting column of the tour
+     * @param optimized turn on/off optimization mode
+     * @return {@code true} if all tiles have been visited. Otherwise, {@code false}.
+     */
+    public boolean runTour(int initialRow, int initialColumn, boolean optimized) {
+        reset();
+        if (!start(initialRow, initialColumn)) {
+            return false;
+        }
+
+        while (!isFullTour() && moveKnight(optimized) > -1) {
+            // Keep moving until the tour is completed or the knight is stuck
+        }
+
+        return isFullTour();
+    }
+
+}
@@ -0,0 +1,397 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builder of open tours on very large boards by divide and conquer.
+ *
+ * The board is split into bands of rows and every band into blocks whose
+ * sides are between 6 and 11 tiles. The knight covers the blocks in a
+ * serpentine order: left to right along the first band, down into the
+ * next band, right to left along it, and so on. Inside each block, a
+ * {@link BacktrackingSolver} finds a path that covers the block and ends a
+ * knight's move away from the entry of the next block.
+ *
+ * Before a path through a block is chosen, the next few blocks are checked
+ * for a path onward. There are only a few block shapes, so the path through
+ * a block only depends on its entry tile and the shapes of the blocks
+ * looked at. Those paths are cached, and after a short warm-up a block costs no more than
+ * copying its tiles. The tour is streamed to a {@link TourSink} block by
+ * block, so the board itself is never held in memory.
+ */
+public class BlockTourBuilder {
+    public static final int MIN_SIZE = 6;
+    private static final int MAX_PART = 11;
+    private static final int PART = 8;
+    private static final int BLOCK_NODE_BUDGET = 200_000;
+    private static final int LOOKAHEAD = 3;
+    private static final int EAST = 0, WEST = 1, SOUTH = 2, NONE = 3;
+    private final int rows;
+    private final int columns;
+    private final int[] rowParts;
+    private final int[] columnParts;
+    private final Map<Integer, BacktrackingSolver> solvers = new HashMap<>();
+    private final Map<Integer, int[]> blockPaths = new HashMap<>();
+    private final Map<Long, int[]> transitions = new HashMap<>();
+
+    /**
+     * Construct a builder for a rectangular board.
+     *
+     * @param rows the number of rows of the board, at least {@link #MIN_SIZE}
+     * @param columns the number of columns of the board, at least {@link #MIN_SIZE}
+     */
+    public BlockTourBuilder(int rows, int columns) {
+        if (rows < MIN_SIZE || columns < MIN_SIZE) {
+            throw new IllegalArgumentException("Invalid board size: " + rows + "x" + columns);
+        }
+
+        this.rows = rows;
+        this.columns = columns;
+        this.rowParts = split(rows);
+        int[] parts = split(columns);
+        // The odd block, if any, is the last block of the tour
+        if (rowParts.length % 2 == 0) {
+            for (int left = 0, right = parts.length - 1; left < right; left++, right--) {
+                int part = parts[left];
+                parts[left] = parts[right];
+                parts[right] = part;
+            }
+        }
+        this.columnParts = parts;
+    }
+
+    /**
+     * Split a side of the board into parts of 6 to 11 tiles.
+     *
+     * Most parts have 8 tiles. At most one part has an odd number of tiles,
+     * and it is the last part.
+     *
+     * @param length the number of tiles on the side
+     * @return the lengths of the parts
+     */
+    static int[] split(int length) {
+        if (length <= MAX_PART) {
+            return new int[]{ length };
+        }
+
+        int fullParts = length / PART - 1;
+        int rest = length - fullParts * PART;
+        List<Integer> parts = new ArrayList<>();
+        for (int part = 0; part < fullParts; part++) {
+            parts.add(PART);
+        }
+        if (rest <= MAX_PART) {
+            parts.add(rest);
+        }
+        else {
+            parts.add(MIN_SIZE);
+            parts.add(rest - MIN_SIZE);
+        }
+
+        int[] result = new int[parts.size()];
+        for (int part = 0; part < result.length; part++) {
+            result[part] = parts.get(part);
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of rows of the board.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the number of columns of the board.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the number of different block paths that have been computed.
+     */
+    public int getCachedBlockCounter() {
+        return blockPaths.size();
+    }
+
+    /**
+     * Get the number of different transitions between blocks that have been computed.
+     */
+    public int getCachedTransitionCounter() {
+        return transitions.size();
+    }
+
+    /**
+     * Build a tour of the board and stream it block by block.
+     *
+     * @param sink the receiver of the tiles of the tour
+     * @throws IOException if the sink fails to write a tile
+     * @throws IllegalStateException if no block path can be stitched
+     */
+    public void build(TourSink sink) throws IOException {
+        int blocksPerBand = columnParts.length;
+        int[] columnOffsets = new int[blocksPerBand];
+        for (int block = 1; block < blocksPerBand; block++) {
+            columnOffsets[block] = columnOffsets[block - 1] + columnParts[block - 1];
+        }
+
+        sink.begin(rows, columns);
+        int entry = findFirstEntry();
+        int rowOffset = 0;
+        long index = 0;
+        for (int band = 0; band < rowParts.length; band++) {
+            for (int step = 0; step < blocksPerBand; step++, index++) {
+                int block = band % 2 == 0 ? step : blocksPerBand - 1 - step;
+                int height = rowParts[band];
+                int width = columnParts[block];
+                boolean last = getSide(describe(index)) == NONE;
+
+                int[] blockPath = last ? solveBlock(height, width, entry, NONE, null) : findTransition(index, entry, LOOKAHEAD);
+                if (blockPath == null) {
+                    throw new IllegalStateException("No path through block " + height + "x" + width
+                            + " from square " + entry);
+                }
+
+                int length = last ? blockPath.length : blockPath.length - 1;
+                for (int position = 0; position < length; position++) {
+                    sink.visit(rowOffset + blockPath[position] / width, columnOffsets[block] + blockPath[position] % width);
+                }
+
+                if (!last) {
+                    entry = blockPath[blockPath.length - 1];
+                }
+            }
+            rowOffset += rowParts[band];
+        }
+    }
+
+    /**
+     * Describe a block by its position in the order of the tour.
+     *
+     * @param index the position of the block in the tour
+     * @return the height, width and exit side of the block packed in an int,
+     *         or -1 if the tour has fewer blocks
+     */
+    private int describe(long index) {
+        int blocksPerBand = columnParts.length;
+        if (index >= (long) rowParts.length * blocksPerBand) {
+            return -1;
+        }
+
+        int band = (int) (index / blocksPerBand);
+        int step = (int) (index % blocksPerBand);
+        int block = band % 2 == 0 ? step : blocksPerBand - 1 - step;
+
+        int side;
+        if (step < blocksPerBand - 1) {
+            side = band % 2 == 0 ? EAST : WEST;
+        }
+        else if (band < rowParts.length - 1) {
+            side = SOUTH;
+        }
+        else {
+            side = NONE;
+        }
+
+        return (rowParts[band] * 16 + columnParts[block]) * 4 + side;
+    }
+
+    private static int getHeight(int description) {
+        return description / 64;
+    }
+
+    private static int getWidth(int description) {
+        return description / 4 % 16;
+    }
+
+    private static int getSide(int description) {
+        return description % 4;
+    }
+
+    /**
+     * Find the first tile of the first block from which the tour can continue.
+     */
+    private int findFirstEntry() {
+        int description = describe(0);
+        for (int entry = 0; entry < getHeight(description) * getWidth(description); entry++) {
+            if (isSolvable(0, entry, LOOKAHEAD)) {
+                return entry;
+            }
+        }
+
+        throw new IllegalStateException("No tour starts in block " + getHeight(description) + "x" + getWidth(description));
+    }
+
+    /**
+     * Check if the tour can continue through a block and the blocks after it.
+     *
+     * @param index the position of the block in the tour
+     * @param entry the first tile of the path through the block
+     * @param lookahead the number of following blocks to check
+     * @return {@code true} if a path was found. Otherwise, {@code false}.
+     */
+    private boolean isSolvable(long index, int entry, int lookahead) {
+        int description = describe(index);
+        int side = getSide(description);
+
+        if (side == NONE || lookahead == 0) {
+            return solveBlock(getHeight(description), getWidth(description), entry, side, null) != null;
+        }
+        return findTransition(index, entry, lookahead) != null;
+    }
+
+    /**
+     * Find a path through a block that leads to a solvable entry of the next block.
+     *
+     * Firstly, a path is found that ends next to the side of the next block.
+     * Then, each tile of the next block a knight's move away from that end is
+     * checked for a path onward, looking a few blocks ahead. If none works,
+     * the end is excluded and another path is found. The result only depends
+     * on the entry and the shapes of the blocks looked at, so it is cached.
+     *
+     * @param index the position of the block in the tour
+     * @param entry the first tile of the path through the block
+     * @param lookahead the number of following blocks to check
+     * @return the path through the block followed by the entry of the next
+     *         block, or {@code null} if there is none
+     */
+    private int[] findTransition(long index, int entry, int lookahead) {
+        long key = lookahead;
+        for (int offset = 0; offset <= lookahead; offset++) {
+            key = key * 1025 + describe(index + offset) + 1;
+        }
+        key = key * 128 + entry;
+        if (transitions.containsKey(key)) {
+            return transitions.get(key);
+        }
+
+        int description = describe(index);
+        int height = getHeight(description), width = getWidth(description), side = getSide(description);
+        int nextDescription = describe(index + 1);
+        int nextHeight = getHeight(nextDescription), nextWidth = getWidth(nextDescription);
+
+        int[] transition = null;
+        Set<Integer> excludedEnds = new HashSet<>();
+        int[] blockPath;
+        while (transition == null && (blockPath = solveBlock(height, width, entry, side, excludedEnds)) != null) {
+            int end = blockPath[blockPath.length - 1];
+
+            for (int moveNumber = 0; moveNumber < Knight.MAX_MOVE_NUM && transition == null; moveNumber++) {
+                int nextEntry = getNextEntry(height, width, end, moveNumber, side, nextHeight, nextWidth);
+                if (nextEntry >= 0 && isSolvable(index + 1, nextEntry, lookahead - 1)) {
+                    transition = new int[blockPath.length + 1];
+                    System.arraycopy(blockPath, 0, transition, 0, blockPath.length);
+                    transition[blockPath.length] = nextEntry;
+                }
+            }
+
+            excludedEnds.add(end);
+        }
+
+        transitions.put(key, transition);
+        return transition;
+    }
+
+    /**
+     * Get the tile of the next block reached by a move from a tile of a block.
+     *
+     * @return the square of the next block, or -1 if the move does not land in it
+     */
+    private static int getNextEntry(int height, int width, int square, int moveNumber, int side, int nextHeight, int nextWidth) {
+        int row = square / width + Knight.vertical[moveNumber];
+        int column = square % width + Knight.horizontal[moveNumber];
+
+        if (side == EAST) {
+            column -= width;
+        }
+        else if (side == WEST) {
+            column += nextWidth;
+        }
+        else {
+            row -= height;
+        }
+
+        if (row >= 0 && column >= 0 && row < nextHeight && column < nextWidth) {
+            return row * nextWidth + column;
+        }
+        return -1;
+    }
+
+    /**
+     * Find a path that covers a block from an entry tile.
+     *
+     * @param side the side of the block where the path has to end
+     * @param excludedEnds the tiles where the path may not end, or {@code null}
+     * @return the squares of the path, or {@code null} if none was found
+     */
+    private int[] solveBlock(int height, int width, int entry, int side, Set<Integer> excludedEnds) {
+        boolean cached = excludedEnds == null || excludedEnds.isEmpty();
+        int key = ((height * 16 + width) * 128 + entry) * 4 + side;
+        if (cached && blockPaths.containsKey(key)) {
+            return blockPaths.get(key);
+        }
+
+        BacktrackingSolver solver = solvers.computeIfAbsent(height * 16 + width, shape -> {
+            BacktrackingSolver blockSolver = new BacktrackingSolver(height, width);
+            blockSolver.setNodeBudget(BLOCK_NODE_BUDGET);
+            return blockSolver;
+        });
+        solver.setEndCondition(end -> {
+            if (excludedEnds != null && excludedEnds.contains(end)) {
+                return false;
+            }
+            if (side == NONE) {
+                return true;
+            }
+
+            int row = end / width, column = end % width;
+            return side == EAST ? column >= width - 2 : side == WEST ? column <= 1 : row >= height - 2;
+        });
+
+        BacktrackingSolver.Result result = solver.solve(entry);
+        int[] blockPath = result.isFound() ? result.getPath() : null;
+        if (cached) {
+            blockPaths.put(key, blockPath);
+        }
+        return blockPath;
+    }
+
+    /**
+     * Build a tour of a large board and print how long it took.
+     *
+     * The tour is written to a file if one is given, as CSV if its name
+     * ends with {@code .csv} and in the binary format otherwise.
+     *
+     * Usage: {@code java BlockTourBuilder [rows] [columns] [file]}
+     */
+    public static void main(String[] args) throws IOException {
+        int rows = args.length >= 1 ? Integer.parseInt(args[0]) : 1000;
+        int columns = args.length >= 2 ? Integer.parseInt(args[1]) : rows;
+
+        BlockTourBuilder builder = new BlockTourBuilder(rows, columns);
+        long startTime = System.nanoTime();
+        if (args.length >= 3) {
+            OutputStream output = Files.newOutputStream(Paths.get(args[2]));
+            try (TourSink sink = args[2].endsWith(".csv") ? new CsvTourWriter(output) : new BinaryTourWriter(output)) {
+                builder.build(sink);
+            }
+        }
+        else {
+            builder.build((row, column) -> { });
+        }
+
+        System.out.printf("Visited %d tiles in %.3f ms with %d cached block paths and %d cached transitions%n",
+                (long) rows * columns, (System.nanoTime() - startTime) / 1e6, builder.getCachedBlockCounter(),
+                builder.getCachedTransitionCounter());
+    }
+
+}
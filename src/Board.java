@@ -1,45 +1,116 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
+import javax.swing.Timer;
 import javax.swing.border.LineBorder;
 
 /**
  * Data structure for managing interaction with a board.
+ *
+ * The state of the tour is kept by a {@link TourEngine}.
+ * The board only renders that state onto its tiles.
+ *
+ * In manual mode, the tiles that the knight can move to are painted after
+ * every click. With move analysis on, a {@link BacktrackingSolver} then
+ * checks each of them on a background thread, within a time budget shorter
+ * than a frame: a move after which the tour can still be completed turns
+ * green, a move that leads to a dead end turns red, and a move that could
+ * not be decided in time stays yellow.
  */
 public class Board {
-    public static final int BOARD_SIZE = 8;
-    private int[][] nextTiles = new int[BOARD_SIZE][2];
-    private JButton[][] tiles = new JButton[BOARD_SIZE][BOARD_SIZE];
-    private int visitedTileCounter;
+    public static final int DEFAULT_SIZE = TourEngine.DEFAULT_SIZE;
+    /**
+     * @deprecated Boards can have any size; use {@link #DEFAULT_SIZE} for the default one.
+     */
+    @Deprecated
+    public static final int BOARD_SIZE = DEFAULT_SIZE;
+    public static final int DEFAULT_FRAMES_PER_SECOND = 60;
+    public static final int DEFAULT_MOVES_PER_SECOND = 100;
+    private static final int EVENT_QUEUE_CAPACITY = 1024;
+    private static final int TOUR_END = -1;
+    private static final int ANIMATION_END = -2;
+    // Below a 60 fps frame, with room for the compiler and the collector
+    private static final long ANALYSIS_NANOS = 10_000_000L;
+    private static final Color SUGGESTION_COLOR = Color.green;
+    private static final Color UNDECIDED_COLOR = Color.yellow;
+    private static final Color DEAD_END_COLOR = Color.red;
+    private final int rows;
+    private final int columns;
+    private final MoveSet moveSet;
+    private int[][] nextTiles;
+    private JButton[][] tiles;
+    private TourEngine engine;
     private Knight knight;
+    private boolean moveAnalysis;
+    private boolean deadEndReported;
+    private SwingWorker<BacktrackingSolver.Status[], Void> analysis;
 
     /**
-     * Construct an empty board with white and black tiles.
+     * Construct an empty 8x8 board with white and black tiles.
      */
     public Board() {
-        TileHandler tileHandler = new TileHandler();
+        this(DEFAULT_SIZE, DEFAULT_SIZE);
+    }
+
+    /**
+     * Construct an empty rectangular board with white and black tiles.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     */
+    public Board(int rows, int columns) {
+        this(rows, columns, MoveSet.KNIGHT);
+    }
 
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int column = 0; column < BOARD_SIZE; column++) {
+    /**
+     * Construct an empty rectangular board for a piece with a custom move set.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     * @param moveSet the moves of the piece
+     */
+    public Board(int rows, int columns, MoveSet moveSet) {
+        this(new MoveTable(rows, columns, moveSet));
+    }
+
+    /**
+     * Construct an empty board of any shape, e.g. one read by {@link MoveTable#readMask}.
+     *
+     * Blocked tiles are painted gray and ignore clicks.
+     *
+     * @param moveTable the precomputed moves of the piece on the board
+     */
+    public Board(MoveTable moveTable) {
+        this.rows = moveTable.getRows();
+        this.columns = moveTable.getColumns();
+        this.moveSet = moveTable.getMoveSet();
+        this.nextTiles = new int[moveSet.size()][2];
+        this.engine = new TourEngine(moveTable);
+        this.tiles = new JButton[rows][columns];
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
                 tiles[row][column] = new JButton();
-                if ((row + column) % 2 == 0) {
-                    tiles[row][column].setBackground(Color.white);
-                }
-                else {
-                    tiles[row][column].setBackground(Color.black);
-                }
+                tiles[row][column].setBackground(getInitialColor(row, column));
                 // Display colors on MacOS
                 tiles[row][column].setOpaque(true);
                 tiles[row][column].setBorder(new LineBorder(Color.black));
-                tiles[row][column].addActionListener(tileHandler);
+                tiles[row][column].addActionListener(new TileHandler(row, column));
+                tiles[row][column].setEnabled(!engine.isBlocked(row, column));
             }
         }
 
         // Initialize the suggestion to a safe empty state
-        for (int moveNumber = 0; moveNumber < Knight.MAX_MOVE_NUM; moveNumber++) {
-            nextTiles[moveNumber][0] = -1;
-            nextTiles[moveNumber][1] = -1;
-        }
+        clearNextTiles();
     }
 
     /**
@@ -47,33 +118,248 @@ public class Board {
      *
      * Firstly, repaint all the tiles to their initial color (black and white).
      * Secondly, remove the knight's icon from the board. Thirdly, reset the
-     * counter for visited tiles. Lastly, set the suggestion for next moves to
-     * a safe empty state.
+     * tour engine. Lastly, set the suggestion for next moves to a safe empty state.
      */
     public void resetBoard() {
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int column = 0; column < BOARD_SIZE; column++) {
+        cancelAnalysis();
+        deadEndReported = false;
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
                 tiles[row][column].setText("");
-                if ((row + column) % 2 == 0) {
-                    tiles[row][column].setBackground(Color.white);
-                }
-                else {
-                    tiles[row][column].setBackground(Color.black);
-                }
+                tiles[row][column].setBackground(getInitialColor(row, column));
             }
         }
 
         tiles[knight.getCurrentRow()][knight.getCurrentColumn()].setIcon(null);
 
-        visitedTileCounter = 0;
+        engine.reset();
 
         // Initialize the suggestion to a safe empty state
-        for (int moveNumber = 0; moveNumber < Knight.MAX_MOVE_NUM; moveNumber++) {
+        clearNextTiles();
+    }
+
+    /**
+     * Get the color of a tile on an empty board: white or black, or gray if it is blocked.
+     */
+    private Color getInitialColor(int row, int column) {
+        if (engine.isBlocked(row, column)) {
+            return Color.darkGray;
+        }
+
+        return (row + column) % 2 == 0 ? Color.white : Color.black;
+    }
+
+    /**
+     * Set the suggestion for next moves to a safe empty state.
+     */
+    private void clearNextTiles() {
+        for (int moveNumber = 0; moveNumber < moveSet.size(); moveNumber++) {
             nextTiles[moveNumber][0] = -1;
             nextTiles[moveNumber][1] = -1;
         }
     }
 
+    /**
+     * Take back the knight's last move in manual mode.
+     *
+     * The tile is repainted to its initial color, the knight goes back to the
+     * previous tile, and the moves from there are suggested again.
+     *
+     * @return {@code true} if a move was undone. Otherwise, {@code false}.
+     */
+    public boolean undoMove() {
+        if (!engine.canUndo()) {
+            return false;
+        }
+
+        clearMoveSuggestion();
+        int row = engine.getCurrentRow(), column = engine.getCurrentColumn();
+        engine.undo();
+
+        tiles[row][column].setIcon(null);
+        tiles[row][column].setText("");
+        tiles[row][column].setBackground(getInitialColor(row, column));
+
+        if (engine.getVisitedTileCounter() == 0) {
+            clearNextTiles();
+        }
+        else {
+            knight.move(engine.getCurrentRow(), engine.getCurrentColumn());
+            tiles[knight.getCurrentRow()][knight.getCurrentColumn()].setIcon(knight.getIcon());
+            displayMoveSuggestion();
+        }
+        return true;
+    }
+
+    /**
+     * Make the last undone move again in manual mode.
+     *
+     * @return {@code true} if a move was redone. Otherwise, {@code false}.
+     */
+    public boolean redoMove() {
+        if (!engine.canRedo()) {
+            return false;
+        }
+
+        clearMoveSuggestion();
+        engine.redo();
+        int row = engine.getCurrentRow(), column = engine.getCurrentColumn();
+
+        if (engine.getVisitedTileCounter() == 1) {
+            knight = new Knight("knight.png", row, column, moveSet);
+        }
+        else {
+            tiles[knight.getCurrentRow()][knight.getCurrentColumn()].setIcon(null);
+            knight.move(row, column);
+        }
+        markAsVisited(row, column);
+
+        if (engine.isFullTour()) {
+            JOptionPane.showMessageDialog(null, "All tiles have been visited!", "Full Tour", JOptionPane.PLAIN_MESSAGE);
+        }
+        else {
+            displayMoveSuggestion();
+        }
+        return true;
+    }
+
+    /**
+     * Save the tour on the board, with its undone moves, to a snapshot file.
+     *
+     * @param file the file to write
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void saveTour(Path file) throws IOException {
+        TourSnapshot.write(engine, file);
+    }
+
+    /**
+     * Replace the tour on the board with one from a snapshot file.
+     *
+     * @param file the snapshot to read, saved from a board of the same size and piece
+     * @throws IOException if the snapshot cannot be read or is damaged
+     * @throws IllegalArgumentException if the snapshot was saved from another board, piece or set of blocked tiles
+     */
+    public void loadTour(Path file) throws IOException {
+        cancelAnalysis();
+        TourSnapshot.restore(file, engine);
+        deadEndReported = false;
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                tiles[row][column].setIcon(null);
+                if (engine.isNotVisited(row, column)) {
+                    tiles[row][column].setText("");
+                    tiles[row][column].setBackground(getInitialColor(row, column));
+                }
+                else {
+                    tiles[row][column].setText("" + engine.getVisitOrder(row, column));
+                    tiles[row][column].setBackground(Color.orange);
+                }
+            }
+        }
+
+        clearNextTiles();
+        if (engine.getVisitedTileCounter() > 0) {
+            knight = new Knight("knight.png", engine.getCurrentRow(), engine.getCurrentColumn(), moveSet);
+            tiles[knight.getCurrentRow()][knight.getCurrentColumn()].setIcon(knight.getIcon());
+            if (!engine.isFullTour()) {
+                displayMoveSuggestion();
+            }
+        }
+    }
+
+    /**
+     * Parse the board dimensions from the command-line arguments.
+     *
+     * No argument gives the standard 8x8 board. One argument gives a square
+     * board of that size, and two arguments give the rows and the columns.
+     *
+     * @param args the command-line arguments of an entry point
+     * @return the number of rows and columns of the board
+     */
+    public static int[] parseDimensions(String[] args) {
+        int rows = DEFAULT_SIZE, columns = DEFAULT_SIZE;
+
+        if (args.length >= 1) {
+            rows = Integer.parseInt(args[0]);
+            columns = rows;
+        }
+        if (args.length >= 2) {
+            columns = Integer.parseInt(args[1]);
+        }
+
+        return new int[]{ rows, columns };
+    }
+
+    /**
+     * Parse the piece from the command-line arguments.
+     *
+     * @param args the command-line arguments of an entry point
+     * @param index the position of the piece among the arguments
+     * @return the move set named by the argument, as accepted by
+     *         {@link MoveSet#forName(String)}, or the knight's if it is missing
+     */
+    public static MoveSet parseMoveSet(String[] args, int index) {
+        return args.length > index ? MoveSet.forName(args[index]) : MoveSet.KNIGHT;
+    }
+
+    /**
+     * Turn on/off the analysis of the suggested moves in manual mode.
+     *
+     * @param moveAnalysis {@code true} to check which moves still allow a full tour
+     */
+    public void setMoveAnalysis(boolean moveAnalysis) {
+        this.moveAnalysis = moveAnalysis;
+    }
+
+    /**
+     * Check if the suggested moves are analysed in manual mode.
+     */
+    public boolean isMoveAnalysis() {
+        return moveAnalysis;
+    }
+
+    /**
+     * Get the number of rows of the board.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the number of columns of the board.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the move table of the board, which also holds its blocked tiles.
+     */
+    public MoveTable getMoveTable() {
+        return engine.getMoveTable();
+    }
+
+    /**
+     * Get the moves of the piece on the board.
+     */
+    public MoveSet getMoveSet() {
+        return moveSet;
+    }
+
+    /**
+     * Get the size of a window that keeps the tiles square.
+     *
+     * @param maxLength the length of the longer side of the window
+     * @return the width and the height of the window
+     */
+    public Dimension getPreferredWindowSize(int maxLength) {
+        int longerSide = Math.max(rows, columns);
+        return new Dimension(maxLength * columns / longerSide, maxLength * rows / longerSide);
+    }
+
     /**
      * Get the tile at a specified coordinate.
      *
@@ -97,22 +383,19 @@ public class Board {
      *          the board. Otherwise, {@code false}.
      */
     public boolean isWithinBound(int row, int column) {
-        return (row >= 0 && column >= 0) && (row < BOARD_SIZE && column < BOARD_SIZE);
+        return engine.isWithinBound(row, column);
     }
 
     /**
-     * Identify a tile as already visited.
+     * Paint a tile that has just been visited by the knight.
      *
      * @param row the row where the tile is located
      * @param column the column where the tile is located
      */
     private void markAsVisited(int row, int column) {
-        if (isWithinBound(row, column) && isNotVisited(row, column)) {
-            visitedTileCounter++;
-            tiles[row][column].setIcon(knight.getIcon());
-            tiles[row][column].setBackground(Color.orange);
-            tiles[row][column].setText("" + visitedTileCounter);
-        }
+        tiles[row][column].setIcon(knight.getIcon());
+        tiles[row][column].setBackground(Color.orange);
+        tiles[row][column].setText("" + engine.getVisitOrder(row, column));
     }
 
     /**
@@ -124,229 +407,343 @@ public class Board {
      *          Otherwise, {@code false}
      */
     public boolean isNotVisited(int row, int column) {
-        return !(tiles[row][column].getBackground() == Color.orange);
+        return engine.isNotVisited(row, column) && !engine.isBlocked(row, column);
     }
 
     /**
      * Paint reachable tiles to suggest the next moves for the knight.
+     *
+     * With move analysis on, the tiles are painted as undecided and the
+     * analysis is started.
      */
     private void displayMoveSuggestion() {
+        int[] candidates = new int[moveSet.size()];
         int validMoveCounter = 0;
 
-        nextTiles = knight.nextDestinations();
-        for (int moveNumber = 0; moveNumber < Knight.MAX_MOVE_NUM; moveNumber++) {
+        knight.nextDestinations(nextTiles);
+        for (int moveNumber = 0; moveNumber < moveSet.size(); moveNumber++) {
             int nextRow = nextTiles[moveNumber][0];
             int nextColumn = nextTiles[moveNumber][1];
             if (isWithinBound(nextRow, nextColumn) && isNotVisited(nextRow, nextColumn)) {
-                tiles[nextRow][nextColumn].setBackground(Color.green);
-                validMoveCounter++;
+                tiles[nextRow][nextColumn].setBackground(moveAnalysis ? UNDECIDED_COLOR : SUGGESTION_COLOR);
+                candidates[validMoveCounter++] = nextRow * columns + nextColumn;
             }
         }
 
         if (validMoveCounter == 0) {
             JOptionPane.showMessageDialog(null, "Out of valid moves!", "Tour Ended", JOptionPane.PLAIN_MESSAGE);
         }
+        else if (moveAnalysis) {
+            analyseMoves(Arrays.copyOf(candidates, validMoveCounter));
+        }
     }
 
     /**
-     * Repaint the tiles that were painted for move suggestion.
+     * Check on a background thread which suggested moves still allow a full tour.
+     *
+     * Each candidate gets an equal share of what is left of the time budget,
+     * so the analysis ends within a frame however many candidates there are.
+     * The path is copied on the Event Dispatch Thread, and the solver works on
+     * its own state, so the user can keep clicking meanwhile: a new click
+     * cancels the analysis and its results are dropped.
+     *
+     * @param candidates the unvisited squares that the knight can move to
      */
-    private void clearMoveSuggestion() {
-        for (int moveNumber = 0; moveNumber < Knight.MAX_MOVE_NUM; moveNumber++) {
-            int nextRow = nextTiles[moveNumber][0];
-            int nextColumn = nextTiles[moveNumber][1];
-            if (isWithinBound(nextRow, nextColumn) && tiles[nextRow][nextColumn].getBackground() == Color.green) {
-                if ((nextRow + nextColumn) % 2 == 0) {
-                    tiles[nextRow][nextColumn].setBackground(Color.white);
+    private void analyseMoves(int[] candidates) {
+        int[] path = Arrays.copyOf(engine.getPath(), engine.getVisitedTileCounter() + 1);
+        BacktrackingSolver solver = new BacktrackingSolver(engine.getMoveTable());
+
+        analysis = new SwingWorker<BacktrackingSolver.Status[], Void>() {
+            @Override
+            protected BacktrackingSolver.Status[] doInBackground() {
+                BacktrackingSolver.Status[] statuses = new BacktrackingSolver.Status[candidates.length];
+                long deadline = System.nanoTime() + ANALYSIS_NANOS;
+
+                for (int i = 0; i < candidates.length && !isCancelled(); i++) {
+                    long now = System.nanoTime();
+                    long sliceEnd = now + Math.max(0, deadline - now) / (candidates.length - i);
+                    solver.setCancellation(() -> isCancelled() || System.nanoTime() > sliceEnd);
+
+                    path[path.length - 1] = candidates[i];
+                    statuses[i] = solver.solve(path).getStatus();
                 }
-                else {
-                    tiles[nextRow][nextColumn].setBackground(Color.black);
+                return statuses;
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+
+                BacktrackingSolver.Status[] statuses;
+                try {
+                    statuses = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    return;
                 }
+                showAnalysis(candidates, statuses);
             }
-        }
+        };
+        analysis.execute();
     }
 
     /**
-     * Calculate the accessibility number of a tile.
+     * Paint the suggested moves by the outcome of their analysis, and tell
+     * the user once per game when no move can complete the tour any more.
      *
-     * @param row the row where the tile is located
-     * @param column the column where the tile is located
-     * @return the number of tiles from which the knight can reach
-     *         the specified one.
+     * @param candidates the squares that were analysed
+     * @param statuses the outcome of the search after each move
      */
-    private int getAccessibilityScore(int row, int column) {
-        int accessibilityScore = 0;
+    private void showAnalysis(int[] candidates, BacktrackingSolver.Status[] statuses) {
+        int deadEndCounter = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            JButton tile = tiles[candidates[i] / columns][candidates[i] % columns];
+            if (statuses[i] == BacktrackingSolver.Status.FOUND) {
+                tile.setBackground(SUGGESTION_COLOR);
+            }
+            else if (statuses[i] == BacktrackingSolver.Status.EXHAUSTED) {
+                tile.setBackground(DEAD_END_COLOR);
+                deadEndCounter++;
+            }
+        }
 
-        for (int moveNumber = 0; moveNumber < Knight.MAX_MOVE_NUM; moveNumber++) {
-            int neighborRow = row + Knight.vertical[moveNumber];
-            int neighborColumn = column + Knight.horizontal[moveNumber];
+        if (deadEndCounter == candidates.length && !deadEndReported) {
+            deadEndReported = true;
+            JOptionPane.showMessageDialog(null, "No full tour is left from here!", "Dead End", JOptionPane.PLAIN_MESSAGE);
+        }
+    }
 
-            if (isWithinBound(neighborRow, neighborColumn) && isNotVisited(neighborRow, neighborColumn)) {
-                accessibilityScore++;
+    /**
+     * Stop the analysis of the previous suggestion, if it is still running.
+     */
+    private void cancelAnalysis() {
+        if (analysis != null) {
+            analysis.cancel(false);
+            analysis = null;
+        }
+    }
+
+    /**
+     * Repaint the tiles that were painted for move suggestion.
+     */
+    private void clearMoveSuggestion() {
+        cancelAnalysis();
+
+        for (int moveNumber = 0; moveNumber < moveSet.size(); moveNumber++) {
+            int nextRow = nextTiles[moveNumber][0];
+            int nextColumn = nextTiles[moveNumber][1];
+            if (isWithinBound(nextRow, nextColumn) && isSuggestion(tiles[nextRow][nextColumn].getBackground())) {
+                tiles[nextRow][nextColumn].setBackground(getInitialColor(nextRow, nextColumn));
             }
         }
+    }
 
-        return accessibilityScore;
+    private static boolean isSuggestion(Color color) {
+        return color == SUGGESTION_COLOR || color == UNDECIDED_COLOR || color == DEAD_END_COLOR;
     }
 
     /**
-     * Get the minimum accessibility score in a collection of tiles suggested for the next moves.
+     * Animate a tour from every starting tile of the board, one after another.
      *
-     * Firstly, the next possible destinations are validated.
-     * Then, an accessibility score is found for each destination.
+     * The tours are made at full speed by a separate engine on a background
+     * thread, which puts every visited square into a bounded queue. A Swing
+     * timer drains the queue on the Event Dispatch Thread: each frame applies
+     * every move that has become due since the last frame, so a late frame
+     * catches up in a single repaint instead of slowing the animation down.
+     * The solver only waits when the queue is full, which keeps memory bounded.
      *
-     * @param nextTiles a collection of next possible destinations for the tour
-     * @return the lowest accessibility score among the tiles
+     * This method must be called on the Event Dispatch Thread and returns at once.
+     *
+     * @param strategy the rule that chooses every move
+     * @param framesPerSecond the number of times the board is updated per second
+     * @param movesPerSecond the number of moves shown per second
      */
-    private int getMinAccessibilityScore(int[][] nextTiles) {
-        int minScore = Knight.MAX_MOVE_NUM;
-
-        for (int moveNumber = 0; moveNumber < Knight.MAX_MOVE_NUM; moveNumber++) {
-            int row = nextTiles[moveNumber][0];
-            int column = nextTiles[moveNumber][1];
-
-            if (isWithinBound(row, column) && isNotVisited(row, column)) {
-                minScore = Math.min(minScore, getAccessibilityScore(row, column));
+    public void animateTours(MoveStrategy strategy, int framesPerSecond, int movesPerSecond) {
+        List<Integer> starts = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (!engine.isBlocked(row, column)) {
+                    starts.add(row * columns + column);
+                }
             }
         }
-
-        return minScore;
+        animate(strategy, starts, framesPerSecond, movesPerSecond);
     }
 
     /**
-     * Get the optimal move number from the suggested moves.
+     * Animate a single tour of the board with a knight using the heuristic approach.
      *
-     * Firstly, the next possible destinations are validated.
-     * Then, an accessibility score is found for each destination.
-     * If optimization mode is on, look ahead to those squares
-     * reachable from "tied" squares to decide on the best one based
-     * on their next minimum accessibility score.
+     * This is {@link #animateTours(MoveStrategy, int, int)} from one starting
+     * tile at the default speed, so it must be called on the Event Dispatch
+     * Thread and returns at once.
      *
-     * @param nextTiles a collection of next possible destinations for the tour
-     * @param optimizedTiedSquares turn on/off optimization mode when "tied" squares
-     *                             are encountered
-     * @return the optimal move number that a knight can make
+     * @param intialRow the starting row of the tour
+     * @param intialColumn the starting column of the tour
+     * @param optimized turn on/off optimization mode
      */
-    private int getOptimalMoveNumber(int[][] nextTiles, boolean optimizedTiedSquares) {
-        int minScore = Knight.MAX_MOVE_NUM, optimalMoveNumber = -1;
+    public void runTour(int intialRow, int intialColumn, boolean optimized) {
+        if (!isWithinBound(intialRow, intialColumn) || engine.isBlocked(intialRow, intialColumn)) {
+            throw new IllegalArgumentException("Invalid starting tile: (" + intialRow + ", " + intialColumn + ")");
+        }
 
-        for (int moveNumber = 0; moveNumber < Knight.MAX_MOVE_NUM; moveNumber++) {
-            int nextRow = nextTiles[moveNumber][0];
-            int nextColumn = nextTiles[moveNumber][1];
+        animate(optimized ? WarnsdorffStrategy.OPTIMIZED : WarnsdorffStrategy.PLAIN,
+                Collections.singletonList(intialRow * columns + intialColumn),
+                DEFAULT_FRAMES_PER_SECOND, DEFAULT_MOVES_PER_SECOND);
+    }
 
-            if (isWithinBound(nextRow, nextColumn) && isNotVisited(nextRow, nextColumn)) {
-                int score = getAccessibilityScore(nextRow, nextColumn);
-                if (score < minScore) {
-                    minScore = score;
-                    optimalMoveNumber = moveNumber;
+    private void animate(MoveStrategy strategy, List<Integer> starts, int framesPerSecond, int movesPerSecond) {
+        if (framesPerSecond <= 0 || movesPerSecond <= 0) {
+            throw new IllegalArgumentException("Invalid animation speed: " + framesPerSecond + " fps, "
+                    + movesPerSecond + " moves/s");
+        }
+
+        BlockingQueue<Integer> events = new ArrayBlockingQueue<>(EVENT_QUEUE_CAPACITY);
+        Thread solver = new Thread(() -> solveTours(strategy, starts, events), "tour-solver");
+        solver.setDaemon(true);
+
+        Timer timer = new Timer(1000 / framesPerSecond, null);
+        double[] dueMoves = new double[1];
+        long[] lastFrameTime = { System.nanoTime() };
+        timer.addActionListener(event -> {
+            long now = System.nanoTime();
+            dueMoves[0] += (now - lastFrameTime[0]) * movesPerSecond / 1e9;
+            lastFrameTime[0] = now;
+
+            while (dueMoves[0] >= 1) {
+                Integer square = events.poll();
+                if (square == null) {
+                    // The solver is behind, so the moves stay due
+                    return;
                 }
-                else if (optimizedTiedSquares && score == minScore) {
-                    int[][] currOptimalNextTiles = knight.nextDestinations(nextTiles[optimalMoveNumber][0], nextTiles[optimalMoveNumber][1]);
-                    int[][] tiedSquareNextTiles = knight.nextDestinations(nextTiles[moveNumber][0], nextTiles[moveNumber][1]);
+                dueMoves[0]--;
 
-                    if (getMinAccessibilityScore(tiedSquareNextTiles) < getMinAccessibilityScore(currOptimalNextTiles)) {
-                        optimalMoveNumber = moveNumber;
-                    }
+                if (square == ANIMATION_END) {
+                    timer.stop();
+                    return;
                 }
+                if (square == TOUR_END) {
+                    // A modal dialog keeps dispatching events, so the timer must not fire meanwhile
+                    timer.stop();
+                    showTourResult();
+                    resetBoard();
+                    dueMoves[0] = 0;
+                    lastFrameTime[0] = System.nanoTime();
+                    timer.start();
+                    return;
+                }
+                showMove(square);
             }
-        }
+        });
 
-        return optimalMoveNumber;
+        solver.start();
+        timer.start();
     }
 
     /**
-     * Move the knight based on the heuristic approach.
-     *
-     * Firstly, the next possible destinations for the tour are generated.
-     * Then, the optimal move is found. The knight moves to that tile.
-     * If no optimal move is found, an error message is displayed.
+     * Make a tour from every given starting square and put the visited squares into a queue.
      *
-     * @param optimizedTiedSquares turn on/off optimization mode when "tied" squares
-     *                             are encountered
-     * @return {@code true} if the knight can make a valid move. Otherwise, {@code false}.
+     * The end of each tour is marked with {@link #TOUR_END}, and the end of
+     * the last one with {@link #ANIMATION_END}. Only the solver's own engine
+     * is touched, so this runs off the Event Dispatch Thread.
      */
-    private boolean moveKnight(boolean optimizedTiedSquares) {
-        nextTiles = knight.nextDestinations();
+    private void solveTours(MoveStrategy strategy, List<Integer> starts, BlockingQueue<Integer> events) {
+        TourEngine solver = new TourEngine(engine.getMoveTable());
 
-        int optimalMoveNumber = getOptimalMoveNumber(nextTiles, optimizedTiedSquares);
+        try {
+            for (int start : starts) {
+                solver.reset();
+                solver.start(start / columns, start % columns);
+                events.put(solver.getCurrentSquare());
 
-        if (optimalMoveNumber <= -1) {
-            JOptionPane.showMessageDialog(null, "Out of valid moves!", "Tour Ended", JOptionPane.PLAIN_MESSAGE);
-        }
-        else {
-            tiles[knight.getCurrentRow()][knight.getCurrentColumn()].setIcon(null);
-            if (knight.move(optimalMoveNumber)) {
-                markAsVisited(nextTiles[optimalMoveNumber][0], nextTiles[optimalMoveNumber][1]);
-                return true;
+                while (!solver.isFullTour() && solver.moveKnight(strategy) > -1) {
+                    events.put(solver.getCurrentSquare());
+                }
+                events.put(TOUR_END);
             }
+            events.put(ANIMATION_END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-
-        return false;
     }
 
     /**
-     * Make a tour of the board with a knight using the heuristic approach.
+     * Move the knight to a square chosen by the solver and paint the tile.
      *
-     * @param intialRow the starting row of the tour
-     * @param intialColumn the starting column of the tour
-     * @param optimized turn on/off optimization mode
+     * @param square the square visited by the solver
      */
-    public void runTour(int intialRow, int intialColumn, boolean optimized) {
-        knight = new Knight("knight.png", intialRow, intialColumn);
-        markAsVisited(intialRow, intialColumn);
-
-        while (visitedTileCounter < BOARD_SIZE * BOARD_SIZE && moveKnight(optimized)) {
-            try {
-                Thread.sleep(10);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+    private void showMove(int square) {
+        int row = square / columns, column = square % columns;
+
+        if (engine.getVisitedTileCounter() == 0) {
+            knight = new Knight("knight.png", row, column, moveSet);
+            engine.start(row, column);
+        }
+        else {
+            tiles[knight.getCurrentRow()][knight.getCurrentColumn()].setIcon(null);
+            knight.move(row, column);
+            engine.moveTo(row, column);
         }
+        markAsVisited(row, column);
+    }
 
-        if (visitedTileCounter >= BOARD_SIZE * BOARD_SIZE) {
+    /**
+     * Tell the user how the tour on the board ended.
+     */
+    private void showTourResult() {
+        if (engine.isFullTour()) {
             JOptionPane.showMessageDialog(null, "All tiles have been visited!", "Full Tour", JOptionPane.PLAIN_MESSAGE);
         }
+        else {
+            JOptionPane.showMessageDialog(null, "Out of valid moves!", "Tour Ended", JOptionPane.PLAIN_MESSAGE);
+        }
     }
 
-
     /**
-     * A class for handling the user's interaction with the tiles on a board.
+     * A class for handling the user's interaction with a tile on a board.
+     *
+     * Every tile has its own handler, which knows the tile's coordinate.
      */
     private class TileHandler implements ActionListener {
+        private final int row;
+        private final int column;
+
+        TileHandler(int row, int column) {
+            this.row = row;
+            this.column = column;
+        }
+
         public void actionPerformed(ActionEvent e) {
-            Object source = e.getSource();
             // Clear any move suggestion
             clearMoveSuggestion();
 
-            for (int row = 0; row < BOARD_SIZE; row++) {
-                for (int column = 0; column < BOARD_SIZE; column++) {
-                    // Attempt to move the knight to the clicked and unvisited tile
-                    if (source == tiles[row][column] && isNotVisited(row, column)) {
-                        // Initialize the knight on its first move
-                        if (visitedTileCounter == 0) {
-                            knight = new Knight("knight.png", row, column);
-                            // Mark the tile as visited
-                            markAsVisited(row, column);
-                        }
-                        else {
-                            // Remove the knight from the previous position
-                            tiles[knight.getCurrentRow()][knight.getCurrentColumn()].setIcon(null);
-                            // Move the knight to the new position
-                            if (knight.move(row, column)) {
-                                // Mark the tile as visited
-                                markAsVisited(row, column);
-                            }
-                            // If fails, put the knight back
-                            else {
-                                tiles[knight.getCurrentRow()][knight.getCurrentColumn()].setIcon(knight.getIcon());
-                            }
-                        }
+            // Attempt to move the knight to the clicked and unvisited tile
+            if (isNotVisited(row, column)) {
+                // Initialize the knight on its first move
+                if (engine.getVisitedTileCounter() == 0) {
+                    knight = new Knight("knight.png", row, column, moveSet);
+                    engine.start(row, column);
+                    // Mark the tile as visited
+                    markAsVisited(row, column);
+                }
+                else {
+                    // Remove the knight from the previous position
+                    tiles[knight.getCurrentRow()][knight.getCurrentColumn()].setIcon(null);
+                    // Move the knight to the new position
+                    if (knight.move(row, column)) {
+                        engine.moveTo(row, column);
+                        // Mark the tile as visited
+                        markAsVisited(row, column);
+                    }
+                    // If fails, put the knight back
+                    else {
+                        tiles[knight.getCurrentRow()][knight.getCurrentColumn()].setIcon(knight.getIcon());
                     }
                 }
             }
 
             // Check if all tiles have been visited
-            if (visitedTileCounter >= BOARD_SIZE * BOARD_SIZE) {
+            if (engine.isFullTour()) {
                 JOptionPane.showMessageDialog(null, "All tiles have been visited!", "Full Tour", JOptionPane.PLAIN_MESSAGE);
             }
             else {
@@ -0,0 +1,761 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Exhaustive search for the tours of a small board that satisfy extra constraints.
+ *
+ * A tour numbers the tiles from 1 in the order they are visited, as the
+ * {@link TourEngine} does. With {@link Constraint#ROWS} every row of numbers
+ * has the same sum, and with {@link Constraint#COLUMNS} every column does; a
+ * tour with both is a semi-magic tour, whose rows and columns all add up to
+ * 260 on the 8x8 board. With {@link Constraint#SYMMETRIC} the second half of
+ * the tour is the first half turned by half a circle, so the tour is closed
+ * and the numbers of opposite tiles differ by half the number of tiles.
+ *
+ * The search runs on bitboards, as in a {@link TourEnumerator}, and cuts a
+ * branch as soon as an unvisited tile loses its last way in. After every
+ * move, each row and column is checked against the numbers still to come: a
+ * line with {@code m} empty tiles can gain at least the sum of the next
+ * {@code m} numbers and at most the sum of the last {@code m}, so a line whose
+ * missing sum falls outside that range cuts the branch. A symmetric tour is
+ * searched one half at a time, placing every tile together with its opposite.
+ *
+ * The subtrees below the first moves are forked as tasks of a fork/join pool,
+ * so idle workers steal the subtrees left by busy ones. Tours are streamed to
+ * a callback as they are found, and the progress can be followed while the
+ * search runs. Even with the pruning, an exhaustive search of the 8x8 board
+ * takes far longer than a session, so a search can be given a time limit.
+ */
+public class ConstrainedTourSearch {
+    public static final int SPLIT_DEPTH = 6;
+    public static final long DEFAULT_PROGRESS_MILLIS = 1000;
+    private static final int POLL_MASK = (1 << 12) - 1;
+    private final MoveTable moveTable;
+    private final int rows;
+    private final int columns;
+    private final int squareCount;
+    private final long[] attacks;
+    private final long fullMask;
+    private final boolean equalRows;
+    private final boolean equalColumns;
+    private final boolean symmetric;
+    private final int rowTarget;
+    private final int columnTarget;
+    private final int threads;
+    private final LongAdder nodeCounter = new LongAdder();
+    private final LongAdder pruneCounter = new LongAdder();
+    private final LongAdder solutionCounter = new LongAdder();
+    private final LongAdder subtreeCounter = new LongAdder();
+    private final LongAdder finishedSubtreeCounter = new LongAdder();
+    private long timeoutMillis;
+    private long progressMillis = DEFAULT_PROGRESS_MILLIS;
+    private Consumer<Progress> progressListener;
+    private long deadline;
+    private volatile boolean stopped;
+    private long startTime;
+
+    /**
+     * Extra condition that a tour has to satisfy.
+     */
+    public enum Constraint {
+        /** Every row has the same sum of visit numbers. */
+        ROWS,
+        /** Every column has the same sum of visit numbers. */
+        COLUMNS,
+        /** The second half of the tour is the first half turned by half a circle. */
+        SYMMETRIC;
+
+        /**
+         * Parse a list of constraints separated by {@code +}, such as
+         * {@code magic+symmetric}. The name {@code magic} stands for both
+         * {@code rows} and {@code columns}.
+         *
+         * @param names the names of the constraints
+         * @return the set of constraints
+         */
+        public static Set<Constraint> parse(String names) {
+            Set<Constraint> constraints = EnumSet.noneOf(Constraint.class);
+            for (String name : names.split("\\+")) {
+                switch (name.trim().toLowerCase(Locale.ROOT)) {
+                    case "magic":
+                        constraints.add(ROWS);
+                        constraints.add(COLUMNS);
+                        break;
+                    case "rows":
+                        constraints.add(ROWS);
+                        break;
+                    case "columns":
+                        constraints.add(COLUMNS);
+                        break;
+                    case "symmetric":
+                        constraints.add(SYMMETRIC);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown constraint: " + name);
+                }
+            }
+
+            return constraints;
+        }
+    }
+
+    /**
+     * Construct a search that uses every available core.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     * @param constraints the conditions that every tour has to satisfy
+     */
+    public ConstrainedTourSearch(int rows, int columns, Set<Constraint> constraints) {
+        this(new MoveTable(rows, columns), constraints, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct a search on top of an existing move table.
+     *
+     * @param moveTable the precomputed moves of a board with at most 64 tiles and no obstacles
+     * @param constraints the conditions that every tour has to satisfy
+     * @param threads the number of worker threads
+     */
+    public ConstrainedTourSearch(MoveTable moveTable, Set<Constraint> constraints, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        if (moveTable.hasObstacles()) {
+            throw new IllegalArgumentException("Constrained tours need a board without obstacles");
+        }
+
+        BitboardEngine engine = new BitboardEngine(moveTable);
+        this.moveTable = moveTable;
+        this.rows = moveTable.getRows();
+        this.columns = moveTable.getColumns();
+        this.squareCount = moveTable.getSquareCount();
+        this.attacks = new long[squareCount];
+        for (int square = 0; square < squareCount; square++) {
+            attacks[square] = engine.getAttacks(square);
+        }
+        this.fullMask = squareCount == Long.SIZE ? -1L : (1L << squareCount) - 1;
+        this.threads = threads;
+
+        int total = squareCount * (squareCount + 1) / 2;
+        this.equalRows = constraints.contains(Constraint.ROWS);
+        this.equalColumns = constraints.contains(Constraint.COLUMNS);
+        this.symmetric = constraints.contains(Constraint.SYMMETRIC);
+        if (equalRows && total % rows != 0) {
+            throw new IllegalArgumentException("The rows of a " + rows + "x" + columns
+                    + " board cannot have equal sums");
+        }
+        if (equalColumns && total % columns != 0) {
+            throw new IllegalArgumentException("The columns of a " + rows + "x" + columns
+                    + " board cannot have equal sums");
+        }
+        if (symmetric && squareCount % 2 != 0) {
+            throw new IllegalArgumentException("A symmetric tour needs an even number of tiles");
+        }
+        this.rowTarget = total / rows;
+        this.columnTarget = total / columns;
+    }
+
+    /**
+     * Get the move table used by the search.
+     */
+    public MoveTable getMoveTable() {
+        return moveTable;
+    }
+
+    /**
+     * Get the sum of every row of a tour, if the rows are constrained.
+     */
+    public int getRowTarget() {
+        return rowTarget;
+    }
+
+    /**
+     * Get the sum of every column of a tour, if the columns are constrained.
+     */
+    public int getColumnTarget() {
+        return columnTarget;
+    }
+
+    /**
+     * Set the time after which a search stops, keeping the tours found so far.
+     *
+     * @param timeoutMillis the time limit in milliseconds, or 0 for no limit
+     */
+    public void setTimeout(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Invalid timeout: " + timeoutMillis);
+        }
+
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Set a receiver for the progress of a search, which is called from the
+     * searching thread at a fixed interval until the search ends.
+     *
+     * @param progressListener the receiver of the progress, or {@code null} for none
+     * @param progressMillis the interval between two reports in milliseconds
+     */
+    public void setProgressListener(Consumer<Progress> progressListener, long progressMillis) {
+        if (progressMillis <= 0) {
+            throw new IllegalArgumentException("Invalid progress interval: " + progressMillis);
+        }
+
+        this.progressListener = progressListener;
+        this.progressMillis = progressMillis;
+    }
+
+    /**
+     * Ask a running search to stop as soon as possible.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Find the tours from a starting square that satisfy the constraints.
+     *
+     * The callback receives the squares of every tour in the order they are
+     * visited. It is called from the worker threads, possibly at the same
+     * time, and the array is reused once the callback returns.
+     *
+     * @param initialSquare the starting square of the tours
+     * @param consumer the receiver of every tour
+     * @return the progress at the end of the search
+     */
+    public Progress search(int initialSquare, Consumer<int[]> consumer) {
+        if (initialSquare < 0 || initialSquare >= squareCount) {
+            throw new IllegalArgumentException("Invalid starting square: " + initialSquare);
+        }
+
+        return search(new int[]{ initialSquare }, consumer);
+    }
+
+    /**
+     * Find the tours from every starting square that satisfy the constraints.
+     *
+     * The numbers of a tour depend on where it starts, so every rotation of a
+     * closed tour is reported from its own starting square.
+     *
+     * @param consumer the receiver of every tour
+     * @return the progress at the end of the search
+     */
+    public Progress search(Consumer<int[]> consumer) {
+        int[] initialSquares = new int[squareCount];
+        for (int square = 0; square < squareCount; square++) {
+            initialSquares[square] = square;
+        }
+
+        return search(initialSquares, consumer);
+    }
+
+    private Progress search(int[] initialSquares, Consumer<int[]> consumer) {
+        nodeCounter.reset();
+        pruneCounter.reset();
+        solutionCounter.reset();
+        subtreeCounter.reset();
+        finishedSubtreeCounter.reset();
+        stopped = false;
+        startTime = System.nanoTime();
+        deadline = timeoutMillis > 0 ? startTime + timeoutMillis * 1_000_000L : 0;
+
+        ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+        List<Subtree> roots = new ArrayList<>();
+        for (int square : initialSquares) {
+            roots.add(new Subtree(new int[]{ square }, searches, consumer));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            ForkJoinTask<?> task = pool.submit(() -> ForkJoinTask.invokeAll(roots));
+            while (true) {
+                try {
+                    task.get(progressMillis, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    if (progressListener != null) {
+                        progressListener.accept(getProgress());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while searching for tours", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to search for tours", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return getProgress();
+    }
+
+    /**
+     * Get the progress of the running or the last search.
+     */
+    public Progress getProgress() {
+        return new Progress(nodeCounter.sum(), pruneCounter.sum(), solutionCounter.sum(), finishedSubtreeCounter.sum(),
+                subtreeCounter.sum(), System.nanoTime() - startTime, stopped);
+    }
+
+    /**
+     * Check if the search has to stop, remembering it once the time is up.
+     */
+    private boolean isStopped() {
+        if (!stopped && deadline != 0 && System.nanoTime() > deadline) {
+            stopped = true;
+        }
+
+        return stopped;
+    }
+
+    /**
+     * Snapshot of the counters of a search.
+     */
+    public static class Progress {
+        private final long nodeCounter;
+        private final long pruneCounter;
+        private final long solutionCounter;
+        private final long finishedSubtreeCounter;
+        private final long subtreeCounter;
+        private final long elapsedNanos;
+        private final boolean stopped;
+
+        Progress(long nodeCounter, long pruneCounter, long solutionCounter, long finishedSubtreeCounter,
+                 long subtreeCounter, long elapsedNanos, boolean stopped) {
+            this.nodeCounter = nodeCounter;
+            this.pruneCounter = pruneCounter;
+            this.solutionCounter = solutionCounter;
+            this.finishedSubtreeCounter = finishedSubtreeCounter;
+            this.subtreeCounter = subtreeCounter;
+            this.elapsedNanos = elapsedNanos;
+            this.stopped = stopped;
+        }
+
+        /**
+         * Get the number of moves tried so far.
+         */
+        public long getNodeCounter() {
+            return nodeCounter;
+        }
+
+        /**
+         * Get the number of moves cut by the sums of the rows and columns.
+         */
+        public long getPruneCounter() {
+            return pruneCounter;
+        }
+
+        /**
+         * Get the number of tours found so far.
+         */
+        public long getSolutionCounter() {
+            return solutionCounter;
+        }
+
+        /**
+         * Get the number of subtrees searched to the end.
+         */
+        public long getFinishedSubtreeCounter() {
+            return finishedSubtreeCounter;
+        }
+
+        /**
+         * Get the number of subtrees handed to the workers so far.
+         */
+        public long getSubtreeCounter() {
+            return subtreeCounter;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Check if the search was stopped before it was exhaustive.
+         */
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        /**
+         * Get the number of moves tried per second.
+         */
+        public double getNodesPerSecond() {
+            return elapsedNanos > 0 ? nodeCounter * 1e9 / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d tours, %d/%d subtrees, %d nodes (%.0f/s), %d cut by sums, %.3f s%s",
+                    solutionCounter, finishedSubtreeCounter, subtreeCounter, nodeCounter, getNodesPerSecond(),
+                    pruneCounter, elapsedNanos / 1e9, stopped ? ", stopped" : "");
+        }
+    }
+
+    /**
+     * The subtree below a prefix of the first half of a tour.
+     *
+     * Short prefixes fork a task for every move that passes the checks, and
+     * longer ones are searched to the end by the worker that runs them.
+     */
+    private class Subtree extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] prefix;
+        private final ThreadLocal<Search> searches;
+        private final Consumer<int[]> consumer;
+
+        Subtree(int[] prefix, ThreadLocal<Search> searches, Consumer<int[]> consumer) {
+            this.prefix = prefix;
+            this.searches = searches;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if (isStopped()) {
+                return;
+            }
+
+            Search search = searches.get();
+            if (prefix.length < SPLIT_DEPTH && prefix.length < getHalfLength()) {
+                List<Subtree> children = new ArrayList<>();
+                for (int[] child : search.expand(prefix)) {
+                    children.add(new Subtree(child, searches, consumer));
+                }
+                invokeAll(children);
+                return;
+            }
+
+            subtreeCounter.increment();
+            search.run(prefix, consumer);
+            if (!stopped) {
+                finishedSubtreeCounter.increment();
+            }
+        }
+    }
+
+    /**
+     * Get the number of tiles that are chosen by the search; the rest of a
+     * symmetric tour follows from them.
+     */
+    private int getHalfLength() {
+        return symmetric ? squareCount / 2 : squareCount;
+    }
+
+    private int getOpposite(int square) {
+        return squareCount - 1 - square;
+    }
+
+    /**
+     * The state of one worker thread.
+     */
+    private class Search {
+        private final int[] path = new int[squareCount];
+        private final int[] rowSums = new int[rows];
+        private final int[] rowCounts = new int[rows];
+        private final int[] columnSums = new int[columns];
+        private final int[] columnCounts = new int[columns];
+        private long visited;
+        private long nodes;
+        private long prunes;
+
+        /**
+         * Set up the state at the end of a prefix and check it.
+         *
+         * @return {@code true} if the prefix is a valid start of a tour
+         */
+        private boolean load(int[] prefix) {
+            visited = 0;
+            Arrays.fill(rowSums, 0);
+            Arrays.fill(rowCounts, 0);
+            Arrays.fill(columnSums, 0);
+            Arrays.fill(columnCounts, 0);
+            for (int length = 1; length <= prefix.length; length++) {
+                int square = prefix[length - 1];
+                if ((visited & 1L << square) != 0
+                        || (length > 1 && (attacks[prefix[length - 2]] & 1L << square) == 0)) {
+                    return false;
+                }
+                place(square, length);
+            }
+
+            return fits(prefix.length);
+        }
+
+        /**
+         * Get the prefixes one move longer that pass the checks.
+         */
+        List<int[]> expand(int[] prefix) {
+            List<int[]> children = new ArrayList<>();
+            if (!load(prefix)) {
+                return children;
+            }
+
+            int length = prefix.length;
+            int square = prefix[length - 1];
+            for (long next = attacks[square] & fullMask & ~visited; next != 0; next &= next - 1) {
+                int nextSquare = Long.numberOfTrailingZeros(next);
+                nodes++;
+                if (!isDeadEnd(square, nextSquare)) {
+                    place(nextSquare, length + 1);
+                    if (fits(length + 1)) {
+                        int[] child = Arrays.copyOf(prefix, length + 1);
+                        child[length] = nextSquare;
+                        children.add(child);
+                    }
+                    else {
+                        prunes++;
+                    }
+                    remove(nextSquare, length + 1);
+                }
+            }
+            flush();
+
+            return children;
+        }
+
+        /**
+         * Search the subtree below a prefix to the end.
+         */
+        void run(int[] prefix, Consumer<int[]> consumer) {
+            if (load(prefix)) {
+                System.arraycopy(prefix, 0, path, 0, prefix.length);
+                search(prefix.length, consumer);
+            }
+            flush();
+        }
+
+        private void search(int length, Consumer<int[]> consumer) {
+            int square = path[length - 1];
+            if (length == getHalfLength()) {
+                if (symmetric) {
+                    if ((attacks[square] & 1L << getOpposite(path[0])) == 0) {
+                        return;
+                    }
+                    for (int step = 0; step < length; step++) {
+                        path[length + step] = getOpposite(path[step]);
+                    }
+                }
+
+                solutionCounter.increment();
+                consumer.accept(path);
+                return;
+            }
+
+            for (long next = attacks[square] & fullMask & ~visited; next != 0; next &= next - 1) {
+                int nextSquare = Long.numberOfTrailingZeros(next);
+                if ((++nodes & POLL_MASK) == 0) {
+                    flush();
+                    if (isStopped()) {
+                        return;
+                    }
+                }
+                if (!isDeadEnd(square, nextSquare)) {
+                    place(nextSquare, length + 1);
+                    if (fits(length + 1)) {
+                        path[length] = nextSquare;
+                        search(length + 1, consumer);
+                    }
+                    else {
+                        prunes++;
+                    }
+                    remove(nextSquare, length + 1);
+                    if (stopped) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Visit a square with a number, and its opposite in a symmetric tour.
+         */
+        private void place(int square, int number) {
+            add(square, number, 1);
+            if (symmetric) {
+                add(getOpposite(square), number + squareCount / 2, 1);
+            }
+        }
+
+        private void remove(int square, int number) {
+            add(square, -number, -1);
+            if (symmetric) {
+                add(getOpposite(square), -number - squareCount / 2, -1);
+            }
+        }
+
+        private void add(int square, int number, int count) {
+            visited ^= 1L << square;
+            rowSums[square / columns] += number;
+            rowCounts[square / columns] += count;
+            columnSums[square % columns] += number;
+            columnCounts[square % columns] += count;
+        }
+
+        /**
+         * Check that every constrained line can still reach its sum with
+         * numbers after the last one placed.
+         */
+        private boolean fits(int length) {
+            if (equalRows) {
+                for (int row = 0; row < rows; row++) {
+                    if (!canReach(rowTarget - rowSums[row], columns - rowCounts[row], length)) {
+                        return false;
+                    }
+                }
+            }
+            if (equalColumns) {
+                for (int column = 0; column < columns; column++) {
+                    if (!canReach(columnTarget - columnSums[column], rows - columnCounts[column], length)) {
+                        return false;
+                    }
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Check if a sum can be made of {@code empty} distinct numbers above
+         * {@code length}. In a symmetric tour some of those numbers are
+         * already taken, so the range is wider than needed but still safe.
+         */
+        private boolean canReach(int missing, int empty, int length) {
+            int spread = empty * (empty - 1) / 2;
+            return missing >= empty * (length + 1) + spread && missing <= empty * squareCount - spread;
+        }
+
+        /**
+         * Check if moving from a square to the next one cuts off an unvisited
+         * tile, as in {@link TourEnumerator}. A tile of a symmetric tour can
+         * also be entered from the opposite of the next square, where the
+         * second half of the tour goes on.
+         */
+        private boolean isDeadEnd(int square, int nextSquare) {
+            long entries = 1L << nextSquare;
+            if (symmetric) {
+                entries |= 1L << getOpposite(nextSquare);
+            }
+            long remaining = fullMask & ~visited & ~entries;
+            long open = remaining | entries;
+
+            for (long left = attacks[square] & remaining; left != 0; left &= left - 1) {
+                if ((attacks[Long.numberOfTrailingZeros(left)] & open) == 0) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private void flush() {
+            nodeCounter.add(nodes);
+            pruneCounter.add(prunes);
+            nodes = 0;
+            prunes = 0;
+        }
+    }
+
+    /**
+     * Format a tour as the grid of its visit numbers, one row per line.
+     *
+     * @param path the squares of the tour in the order they are visited
+     * @return the grid, with a line separator after every row
+     */
+    public String toGrid(int[] path) {
+        int[] numbers = new int[squareCount];
+        for (int step = 0; step < path.length; step++) {
+            numbers[path[step]] = step + 1;
+        }
+
+        int width = Integer.toString(squareCount).length() + 1;
+        StringBuilder grid = new StringBuilder();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                grid.append(String.format("%" + width + "d", numbers[row * columns + column]));
+            }
+            grid.append(System.lineSeparator());
+        }
+
+        return grid.toString();
+    }
+
+    /**
+     * Search for constrained tours, writing every tour to a file as soon as it
+     * is found and printing the progress every second.
+     *
+     * The start is a tile given as {@code row,column}, or {@code all} for every
+     * tile. The constraints are parsed by {@link Constraint#parse(String)}.
+     *
+     * Usage: {@code java ConstrainedTourSearch [rows] [columns] [constraints] [start] [file] [seconds] [threads]}
+     */
+    public static void main(String[] args) throws IOException {
+        int rows = args.length >= 1 ? Integer.parseInt(args[0]) : 8;
+        int columns = args.length >= 2 ? Integer.parseInt(args[1]) : rows;
+        Set<Constraint> constraints = Constraint.parse(args.length >= 3 ? args[2] : "magic");
+        String start = args.length >= 4 ? args[3] : "0,0";
+        Path file = Paths.get(args.length >= 5 ? args[4] : "tours.txt");
+        long seconds = args.length >= 6 ? Long.parseLong(args[5]) : 60;
+        int threads = args.length >= 7 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+
+        ConstrainedTourSearch search = new ConstrainedTourSearch(new MoveTable(rows, columns), constraints, threads);
+        search.setTimeout(seconds * 1000);
+        search.setProgressListener(progress -> System.out.println(progress), DEFAULT_PROGRESS_MILLIS);
+
+        Progress result;
+        try (Writer output = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.US_ASCII))) {
+            Consumer<int[]> consumer = path -> {
+                String grid = search.toGrid(path);
+                synchronized (output) {
+                    try {
+                        output.write(grid);
+                        output.write(System.lineSeparator());
+                        output.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+
+            System.out.printf("%dx%d board, %s, %d threads%n", rows, columns, constraints, threads);
+            if (start.equals("all")) {
+                result = search.search(consumer);
+            }
+            else {
+                String[] tile = start.split(",");
+                int row = Integer.parseInt(tile[0].trim()), column = Integer.parseInt(tile[1].trim());
+                if (row < 0 || row >= rows || column < 0 || column >= columns) {
+                    throw new IllegalArgumentException("Invalid starting tile: " + start);
+                }
+                result = search.search(row * columns + column, consumer);
+            }
+        }
+
+        System.out.println(result);
+        System.out.printf("Tours written to %s%s%n", file,
+                result.isStopped() ? " (search stopped before the end)" : "");
+    }
+
+}
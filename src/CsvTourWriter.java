@@ -0,0 +1,48 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sink that writes a tour as plain CSV.
+ *
+ * The first line is the header {@code step,row,column}, and every tile of the
+ * tour follows on its own line, with steps numbered from 1 as on the {@link Board}.
+ */
+public class CsvTourWriter implements TourSink {
+    private final Writer output;
+    private long stepCounter;
+
+    /**
+     * Construct a writer on top of an output stream.
+     *
+     * @param output the stream to which the tour is written
+     */
+    public CsvTourWriter(OutputStream output) {
+        this.output = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.US_ASCII), 1 << 16);
+    }
+
+    @Override
+    public void begin(int rows, int columns) throws IOException {
+        output.write("step,row,column\n");
+    }
+
+    @Override
+    public void visit(int row, int column) throws IOException {
+        stepCounter++;
+        output.write(Long.toString(stepCounter));
+        output.write(',');
+        output.write(Integer.toString(row));
+        output.write(',');
+        output.write(Integer.toString(column));
+        output.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+
+}
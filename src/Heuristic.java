@@ -6,33 +6,44 @@ import javax.swing.*;
  */
 public class Heuristic extends JFrame {
     public Heuristic() {
+        this(Board.DEFAULT_SIZE, Board.DEFAULT_SIZE);
+    }
+
+    public Heuristic(int rows, int columns) {
+        this(rows, columns, Board.DEFAULT_FRAMES_PER_SECOND, Board.DEFAULT_MOVES_PER_SECOND);
+    }
+
+    public Heuristic(int rows, int columns, int framesPerSecond, int movesPerSecond) {
+        this(rows, columns, framesPerSecond, movesPerSecond, MoveSet.KNIGHT);
+    }
+
+    public Heuristic(int rows, int columns, int framesPerSecond, int movesPerSecond, MoveSet moveSet) {
         super("Knight's Tour: Heuristic Version");
         Container contents = getContentPane();
-        contents.setLayout(new GridLayout(8, 8));
+        contents.setLayout(new GridLayout(rows, columns));
 
-        Board chessboard = new Board();
+        Board chessboard = new Board(rows, columns, moveSet);
 
-        for (int row = 0; row < Board.BOARD_SIZE; row++) {
-            for (int column = 0; column < Board.BOARD_SIZE; column++) {
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
                 contents.add(chessboard.getTile(row, column));
             }
         }
 
-        setSize(600, 600);
+        setSize(chessboard.getPreferredWindowSize(600));
         setResizable(false);
         setLocationRelativeTo(null);
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setVisible(true);
 
-        for (int row = 0; row < Board.BOARD_SIZE; row++) {
-            for (int column = 0; column < Board.BOARD_SIZE; column++) {
-                chessboard.runTour(row, column, false);
-                chessboard.resetBoard();
-            }
-        }
+        chessboard.animateTours(WarnsdorffStrategy.PLAIN, framesPerSecond, movesPerSecond);
     }
 
     public static void main(String[] args) {
-        new Heuristic();
+        int[] dimensions = Board.parseDimensions(args);
+        int framesPerSecond = args.length >= 3 ? Integer.parseInt(args[2]) : Board.DEFAULT_FRAMES_PER_SECOND;
+        int movesPerSecond = args.length >= 4 ? Integer.parseInt(args[3]) : Board.DEFAULT_MOVES_PER_SECOND;
+        MoveSet moveSet = Board.parseMoveSet(args, 4);
+        SwingUtilities.invokeLater(() -> new Heuristic(dimensions[0], dimensions[1], framesPerSecond, movesPerSecond, moveSet));
     }
 }
\ No newline at end of file
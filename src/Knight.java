@@ -3,11 +3,17 @@ import javax.swing.*;
 /**
  * Data structure to control a knight's movement
  * on a chess board.
+ *
+ * The piece moves as a knight unless it is given another {@link MoveSet},
+ * e.g. that of a camel or a zebra. The static {@link #horizontal},
+ * {@link #vertical} and {@link #fillDestinations(int, int, int[][])}
+ * always describe the knight's own moves.
  */
 public class Knight {
     public static final int MAX_MOVE_NUM = 8;
     public static final int[] horizontal  = new int[]{ 2, 1, -1, -2, -2, -1, 1, 2 };
     public static final int[] vertical    = new int[]{ -1, -2, -2, -1, 1, 2, 2, 1 };
+    private final MoveSet moveSet;
     private ImageIcon icon;
     private int currentRow;
     private int currentColumn;
@@ -20,11 +26,31 @@ public class Knight {
      * @param initialColumn the column where the knight starts the tour
      */
     public Knight(String imageFile, int initialRow, int initialColumn) {
+        this(imageFile, initialRow, initialColumn, MoveSet.KNIGHT);
+    }
+
+    /**
+     * Initialize a piece with a custom move set to be used on a {@link Board}.
+     *
+     * @param imageFile the filename of the piece's icon image
+     * @param initialRow the row where the piece starts the tour
+     * @param initialColumn the column where the piece starts the tour
+     * @param moveSet the moves of the piece
+     */
+    public Knight(String imageFile, int initialRow, int initialColumn, MoveSet moveSet) {
+        this.moveSet = moveSet;
         setIcon(imageFile);
         this.currentRow = initialRow;
         this.currentColumn = initialColumn;
     }
 
+    /**
+     * Get the moves of the piece.
+     */
+    public MoveSet getMoveSet() {
+        return moveSet;
+    }
+
     /**
      * Get a knight's icon image.
      *
@@ -44,17 +70,15 @@ public class Knight {
     }
 
     /**
-     * Check if the knight can reach the destination tile with its L-shaped movement.
+     * Check if the knight can reach the destination tile with one of its moves,
+     * which are L-shaped unless another move set was given.
      *
      * @param nextRow the index of the row to which the knight will be moved
      * @param nextColumn the index of the column to which the knight will be moved
      * @return {@code true} if the move has a valid shape. Otherwise, {@code false}
      */
     public boolean isValidMoveShape(int nextRow, int nextColumn) {
-        int rowDiff = Math.abs(nextRow - currentRow);
-        int columnDiff = Math.abs(nextColumn - currentColumn);
-
-        return (rowDiff == 1 && columnDiff == 2) || (rowDiff == 2 && columnDiff == 1);
+        return moveSet.contains(nextRow - currentRow, nextColumn - currentColumn);
     }
 
     /**
@@ -67,14 +91,20 @@ public class Knight {
      * @return an array of possible reachable tiles
      */
     public int[][] nextDestinations() {
-        int[][] nextTiles = new int[MAX_MOVE_NUM][2];
-
-        for (int moveNumber = 0; moveNumber < MAX_MOVE_NUM; moveNumber++) {
-            nextTiles[moveNumber][0] = currentRow + vertical[moveNumber];
-            nextTiles[moveNumber][1] = currentColumn + horizontal[moveNumber];
-        }
+        return nextDestinations(new int[moveSet.size()][2]);
+    }
 
-        return nextTiles;
+    /**
+     * Generate the next possible tiles to which the knight can move into a buffer.
+     *
+     * This is the same as {@link #nextDestinations()}, but the result is written
+     * into an array owned by the caller, so no memory is allocated.
+     *
+     * @param nextTiles a buffer of at least {@code getMoveSet().size()} rows and 2 columns
+     * @return the buffer filled with the possible reachable tiles
+     */
+    public int[][] nextDestinations(int[][] nextTiles) {
+        return fillDestinations(currentRow, currentColumn, moveSet, nextTiles);
     }
 
     /**
@@ -89,8 +119,22 @@ public class Knight {
      * @return an array of possible reachable tiles
      */
     public int[][] nextDestinations(int row, int column) {
-        int[][] nextTiles = new int[MAX_MOVE_NUM][2];
+        return fillDestinations(row, column, moveSet, new int[moveSet.size()][2]);
+    }
 
+    /**
+     * Write the next possible tiles reachable from a tile into a buffer.
+     *
+     * The coordinates of them are calculated based on specified row and column,
+     * and no memory is allocated. As with {@link #nextDestinations()}, the tiles
+     * may be outside the chessboard or visited already.
+     *
+     * @param row the row from which the result is calculated
+     * @param column the column from which the result is calculated
+     * @param nextTiles a buffer of at least {@link #MAX_MOVE_NUM} rows and 2 columns
+     * @return the buffer filled with the possible reachable tiles
+     */
+    public static int[][] fillDestinations(int row, int column, int[][] nextTiles) {
         for (int moveNumber = 0; moveNumber < MAX_MOVE_NUM; moveNumber++) {
             nextTiles[moveNumber][0] = row + vertical[moveNumber];
             nextTiles[moveNumber][1] = column + horizontal[moveNumber];
@@ -99,15 +143,24 @@ public class Knight {
         return nextTiles;
     }
 
+    private static int[][] fillDestinations(int row, int column, MoveSet moveSet, int[][] nextTiles) {
+        for (int moveNumber = 0; moveNumber < moveSet.size(); moveNumber++) {
+            nextTiles[moveNumber][0] = row + moveSet.getRowOffset(moveNumber);
+            nextTiles[moveNumber][1] = column + moveSet.getColumnOffset(moveNumber);
+        }
+
+        return nextTiles;
+    }
+
     /**
      * Move the knight to the next tile based on a move number.
      *
-     * @param moveNumber a number between 0 and 7
+     * @param moveNumber a number below the size of the move set, e.g. between 0 and 7 for a knight
      */
     public boolean move(int moveNumber) {
-        if (moveNumber < MAX_MOVE_NUM) {
-            currentRow += vertical[moveNumber];
-            currentColumn += horizontal[moveNumber];
+        if (moveNumber < moveSet.size()) {
+            currentRow += moveSet.getRowOffset(moveNumber);
+            currentColumn += moveSet.getColumnOffset(moveNumber);
             return true;
         }
         else
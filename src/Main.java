@@ -1,16 +1,39 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import javax.swing.*;
 
 /**
  * Knight's Tour implemented for user interaction.
  */
 public class Main extends JFrame {
+    private final Board chessboard;
+
     public Main() {
+        this(Board.DEFAULT_SIZE, Board.DEFAULT_SIZE);
+    }
+
+    public Main(int rows, int columns) {
+        this(rows, columns, MoveSet.KNIGHT);
+    }
+
+    public Main(int rows, int columns, MoveSet moveSet) {
+        this(rows, columns, moveSet, true);
+    }
+
+    public Main(int rows, int columns, MoveSet moveSet, boolean moveAnalysis) {
+        this(new MoveTable(rows, columns, moveSet), moveAnalysis);
+    }
+
+    public Main(MoveTable moveTable, boolean moveAnalysis) {
         // Set program's title
         super("Knight's Tour: Manual Version");
+        int rows = moveTable.getRows(), columns = moveTable.getColumns();
         Container contents = getContentPane();
-        contents.setLayout(new GridLayout(8, 8));
+        contents.setLayout(new GridLayout(rows, columns));
         // Add Menu Bar
         JMenuBar menuBar = new JMenuBar();
         setJMenuBar(menuBar);
@@ -20,29 +43,102 @@ public class Main extends JFrame {
         // Add Restart option
         JMenuItem restart = new JMenuItem("New Game");
         game.add(restart);
+        chessboard = new Board(moveTable);
+        chessboard.setMoveAnalysis(moveAnalysis);
         restart.addActionListener((new ActionListener() {
             public void actionPerformed(ActionEvent event) {
                 dispose();
-                new Main();
+                new Main(moveTable, chessboard.isMoveAnalysis());
             }
         }));
+        // Add option to check which suggested moves still allow a full tour
+        JCheckBoxMenuItem analysis = new JCheckBoxMenuItem("Move Analysis", moveAnalysis);
+        game.add(analysis);
+        analysis.addActionListener(event -> chessboard.setMoveAnalysis(analysis.isSelected()));
+        // Add options to take back and replay moves
+        game.addSeparator();
+        JMenuItem undo = new JMenuItem("Undo");
+        undo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        game.add(undo);
+        undo.addActionListener(event -> chessboard.undoMove());
+        JMenuItem redo = new JMenuItem("Redo");
+        redo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+        game.add(redo);
+        redo.addActionListener(event -> chessboard.redoMove());
+        // Add options to save the tour and resume it later
+        game.addSeparator();
+        JMenuItem save = new JMenuItem("Save Tour...");
+        game.add(save);
+        save.addActionListener(event -> saveTour());
+        JMenuItem open = new JMenuItem("Open Tour...");
+        game.add(open);
+        open.addActionListener(event -> openTour());
 
-        Board chessboard = new Board();
-
-        for (int row = 0; row < Board.BOARD_SIZE; row++) {
-            for (int column = 0; column < Board.BOARD_SIZE; column++) {
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
                 contents.add(chessboard.getTile(row, column));
             }
         }
 
-        setSize(600, 600);
+        setSize(chessboard.getPreferredWindowSize(600));
         setResizable(false);
         setLocationRelativeTo(null);
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setVisible(true);
     }
 
-    public static void main(String[] args) {
-        new Main();
+    /**
+     * Ask for a file and save the tour on the board to it.
+     */
+    private void saveTour() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            try {
+                chessboard.saveTour(chooser.getSelectedFile().toPath());
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, e.getMessage(), "Save Failed", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    /**
+     * Ask for a snapshot and resume its tour, in a new window if it was
+     * saved from another board, piece or set of blocked tiles.
+     */
+    private void openTour() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        Path file = chooser.getSelectedFile().toPath();
+        try {
+            MoveTable moveTable = TourSnapshot.read(file).getMoveTable();
+            if (moveTable.hasSameBoard(chessboard.getMoveTable())) {
+                chessboard.loadTour(file);
+            }
+            else {
+                dispose();
+                new Main(moveTable, chessboard.isMoveAnalysis()).chessboard.loadTour(file);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Open Failed", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Usage: {@code java Main [rows] [columns] [piece]}, or {@code java Main [maskFile] [piece]}
+     * for a board drawn in a mask file, see {@link MoveTable#fromMask}.
+     */
+    public static void main(String[] args) throws IOException {
+        MoveTable moveTable;
+        if (args.length >= 1 && Files.isRegularFile(Paths.get(args[0]))) {
+            moveTable = MoveTable.readMask(Paths.get(args[0]), Board.parseMoveSet(args, 1));
+        }
+        else {
+            int[] dimensions = Board.parseDimensions(args);
+            moveTable = new MoveTable(dimensions[0], dimensions[1], Board.parseMoveSet(args, 2));
+        }
+        SwingUtilities.invokeLater(() -> new Main(moveTable, true));
     }
 }
\ No newline at end of file
@@ -0,0 +1,257 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The moves of a leaping piece, as offsets in rows and columns.
+ *
+ * An (a, b)-leaper jumps a squares along one axis and b squares along the
+ * other, in any direction, so it has up to eight moves: the knight is the
+ * (1, 2)-leaper, the camel the (1, 3)-leaper and the zebra the
+ * (2, 3)-leaper. Move sets can be combined, e.g. a knight and a camel
+ * together make the gnu, whose moves are those of both pieces.
+ *
+ * The move numbers of a set are the indices of its offsets. The knight's
+ * moves are numbered as {@link Knight#horizontal} and {@link Knight#vertical},
+ * so tours, strategies and the files of {@link BinaryTourWriter} keep their
+ * meaning. A {@link MoveTable} precomputes the destinations of every move
+ * of a set, so the engines never look at the offsets again.
+ */
+public class MoveSet {
+    public static final int MAX_SIZE = Long.SIZE;
+    public static final MoveSet KNIGHT = new MoveSet("knight", Knight.vertical, Knight.horizontal);
+    public static final MoveSet CAMEL = leaper(1, 3).withName("camel");
+    public static final MoveSet ZEBRA = leaper(2, 3).withName("zebra");
+    public static final MoveSet GIRAFFE = leaper(1, 4).withName("giraffe");
+    private final String name;
+    private final int[] rowOffsets;
+    private final int[] columnOffsets;
+    private final boolean colourSwitching;
+
+    private MoveSet(String name, int[] rowOffsets, int[] columnOffsets) {
+        if (rowOffsets.length == 0 || rowOffsets.length > MAX_SIZE) {
+            throw new IllegalArgumentException("Invalid number of moves: " + rowOffsets.length);
+        }
+
+        this.name = name;
+        this.rowOffsets = rowOffsets.clone();
+        this.columnOffsets = columnOffsets.clone();
+
+        boolean switching = true;
+        for (int moveNumber = 0; moveNumber < rowOffsets.length; moveNumber++) {
+            switching &= (rowOffsets[moveNumber] + columnOffsets[moveNumber]) % 2 != 0;
+        }
+        this.colourSwitching = switching;
+    }
+
+    /**
+     * Get the moves of an (a, b)-leaper.
+     *
+     * The moves go clockwise from {@code (-a, +b)}, as those of the knight.
+     * A leaper with {@code a == b} or {@code a == 0} has four moves only.
+     *
+     * @param a the length of the jump along one axis
+     * @param b the length of the jump along the other axis
+     * @return the moves of the leaper
+     */
+    public static MoveSet leaper(int a, int b) {
+        if (a < 0 || b < 0 || a + b == 0) {
+            throw new IllegalArgumentException("Invalid leaper: (" + a + ", " + b + ")");
+        }
+
+        int low = Math.min(a, b), high = Math.max(a, b);
+        int[] rows = { -low, -high, -high, -low, low, high, high, low };
+        int[] columns = { high, low, -low, -high, -high, -low, low, high };
+
+        return new MoveSet(low + "," + high, rows, columns).distinct();
+    }
+
+    /**
+     * Combine the moves of several pieces.
+     *
+     * The moves of the first set keep their numbers, and every later move that
+     * is not already in the set is numbered after them.
+     *
+     * @param moveSets the sets to combine
+     * @return a set with the moves of every piece
+     */
+    public static MoveSet combine(MoveSet... moveSets) {
+        StringBuilder name = new StringBuilder();
+        List<int[]> moves = new ArrayList<>();
+        for (MoveSet moveSet : moveSets) {
+            name.append(name.length() == 0 ? "" : "+").append(moveSet.name);
+            for (int moveNumber = 0; moveNumber < moveSet.size(); moveNumber++) {
+                int[] move = { moveSet.rowOffsets[moveNumber], moveSet.columnOffsets[moveNumber] };
+                if (moves.stream().noneMatch(other -> Arrays.equals(other, move))) {
+                    moves.add(move);
+                }
+            }
+        }
+
+        return fromMoves(name.toString(), moves);
+    }
+
+    /**
+     * Get a move set by name.
+     *
+     * The names are {@code knight}, {@code camel}, {@code zebra} and
+     * {@code giraffe}, or {@code a,b} for any (a, b)-leaper. Several names
+     * joined by {@code +} combine the pieces, as in {@code knight+camel}.
+     *
+     * @param name the name of the move set
+     * @return the moves of the piece
+     */
+    public static MoveSet forName(String name) {
+        String[] pieces = name.split("\\+");
+        if (pieces.length > 1) {
+            MoveSet[] moveSets = new MoveSet[pieces.length];
+            for (int i = 0; i < pieces.length; i++) {
+                moveSets[i] = forName(pieces[i]);
+            }
+            return combine(moveSets);
+        }
+
+        switch (name.trim()) {
+            case "knight":
+                return KNIGHT;
+            case "camel":
+                return CAMEL;
+            case "zebra":
+                return ZEBRA;
+            case "giraffe":
+                return GIRAFFE;
+            default:
+                String[] lengths = name.split(",");
+                if (lengths.length != 2) {
+                    throw new IllegalArgumentException("Unknown piece: " + name);
+                }
+                return leaper(Integer.parseInt(lengths[0].trim()), Integer.parseInt(lengths[1].trim()));
+        }
+    }
+
+    private static MoveSet fromMoves(String name, List<int[]> moves) {
+        int[] rows = new int[moves.size()], columns = new int[moves.size()];
+        for (int moveNumber = 0; moveNumber < moves.size(); moveNumber++) {
+            rows[moveNumber] = moves.get(moveNumber)[0];
+            columns[moveNumber] = moves.get(moveNumber)[1];
+        }
+
+        return new MoveSet(name, rows, columns);
+    }
+
+    private MoveSet withName(String name) {
+        return new MoveSet(name, rowOffsets, columnOffsets);
+    }
+
+    /**
+     * Drop the moves that appear more than once, keeping the first of each.
+     */
+    private MoveSet distinct() {
+        List<int[]> moves = new ArrayList<>();
+        for (int moveNumber = 0; moveNumber < size(); moveNumber++) {
+            if (indexOf(rowOffsets[moveNumber], columnOffsets[moveNumber]) == moveNumber) {
+                moves.add(new int[]{ rowOffsets[moveNumber], columnOffsets[moveNumber] });
+            }
+        }
+
+        return moves.size() == size() ? this : fromMoves(name, moves);
+    }
+
+    /**
+     * Get the name of the move set, as accepted by {@link #forName(String)}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of moves of the piece.
+     */
+    public int size() {
+        return rowOffsets.length;
+    }
+
+    /**
+     * Get the number of bits needed to store a move number, 3 for a knight.
+     */
+    public int getMoveBits() {
+        return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(rowOffsets.length - 1));
+    }
+
+    /**
+     * Get the number of rows crossed by a move.
+     *
+     * @param moveNumber a number below {@link #size()}
+     */
+    public int getRowOffset(int moveNumber) {
+        return rowOffsets[moveNumber];
+    }
+
+    /**
+     * Get the number of columns crossed by a move.
+     *
+     * @param moveNumber a number below {@link #size()}
+     */
+    public int getColumnOffset(int moveNumber) {
+        return columnOffsets[moveNumber];
+    }
+
+    /**
+     * Get the move number of a jump.
+     *
+     * @param rowDiff the difference between the rows of the tiles
+     * @param columnDiff the difference between the columns of the tiles
+     * @return the move number, or -1 if the piece cannot make the jump
+     */
+    public int indexOf(int rowDiff, int columnDiff) {
+        for (int moveNumber = 0; moveNumber < rowOffsets.length; moveNumber++) {
+            if (rowOffsets[moveNumber] == rowDiff && columnOffsets[moveNumber] == columnDiff) {
+                return moveNumber;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Check if the piece can jump between two tiles.
+     *
+     * @param rowDiff the difference between the rows of the tiles
+     * @param columnDiff the difference between the columns of the tiles
+     * @return {@code true} if the jump is one of the moves. Otherwise, {@code false}.
+     */
+    public boolean contains(int rowDiff, int columnDiff) {
+        return indexOf(rowDiff, columnDiff) >= 0;
+    }
+
+    /**
+     * Check if every move lands on a tile of the other colour, as the knight's moves do.
+     *
+     * A tour of such a piece alternates colours, so it can only exist if the
+     * colours of the board differ by at most one tile.
+     */
+    public boolean isColourSwitching() {
+        return colourSwitching;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + size() + " moves";
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof MoveSet)) {
+            return false;
+        }
+
+        MoveSet moveSet = (MoveSet) other;
+        return Arrays.equals(rowOffsets, moveSet.rowOffsets) && Arrays.equals(columnOffsets, moveSet.columnOffsets);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(rowOffsets) + Arrays.hashCode(columnOffsets);
+    }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Rule for choosing the next move of a knight on a {@link TourEngine}.
+ *
+ * A strategy reads the live state of the engine, such as the current square
+ * and the accessibility score of every square, and returns the move number
+ * to make. Strategies without state can be shared by any number of engines.
+ */
+public interface MoveStrategy {
+
+    /**
+     * Choose the next move from the knight's current position.
+     *
+     * A strategy may look ahead by trying moves on the engine, but it must
+     * take them back before returning.
+     *
+     * @param engine the engine whose knight is moved
+     * @return the move number to make, or -1 if the knight is out of valid moves
+     */
+    int selectMove(TourEngine engine);
+
+    /**
+     * Get a strategy by name.
+     *
+     * The names are {@code heuristic}, {@code optimized}, {@code pohl},
+     * {@code squirrel} and {@code random}. A {@code pohl} strategy can be
+     * followed by its depth and a {@code random} one by its seed, as in
+     * {@code pohl:3} or {@code random:42}.
+     *
+     * @param name the name of the strategy
+     * @return a new strategy
+     */
+    static MoveStrategy forName(String name) {
+        int separator = name.indexOf(':');
+        String kind = separator < 0 ? name : name.substring(0, separator);
+        String parameter = separator < 0 ? null : name.substring(separator + 1);
+
+        switch (kind) {
+            case "heuristic":
+                return WarnsdorffStrategy.PLAIN;
+            case "optimized":
+                return WarnsdorffStrategy.OPTIMIZED;
+            case "pohl":
+                return parameter == null ? new PohlStrategy() : new PohlStrategy(Integer.parseInt(parameter));
+            case "squirrel":
+                return new SquirrelCullStrategy();
+            case "random":
+                return parameter == null ? new RandomTieStrategy() : new RandomTieStrategy(Long.parseLong(parameter));
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + name);
+        }
+    }
+
+    /**
+     * Get the name of a strategy with its parameter spelled out, so that
+     * every name of the same strategy gives the same string: {@code pohl}
+     * and {@code pohl:02} are both {@code pohl:2}, and {@code random} is
+     * {@code random:0}.
+     *
+     * @param name the name of the strategy, as accepted by {@link #forName(String)}
+     * @return the canonical name of the strategy
+     */
+    static String canonicalName(String name) {
+        MoveStrategy strategy = forName(name);
+        if (strategy instanceof PohlStrategy) {
+            return "pohl:" + ((PohlStrategy) strategy).getDepth();
+        }
+        if (strategy instanceof RandomTieStrategy) {
+            return "random:" + ((RandomTieStrategy) strategy).getSeed();
+        }
+
+        int separator = name.indexOf(':');
+        return separator < 0 ? name : name.substring(0, separator);
+    }
+
+}
@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Precomputed moves of a piece for every tile of a board.
+ *
+ * Tiles are identified by a square index {@code row * columns + column}.
+ * For each square, the table stores the destination of every move number
+ * in a flat array, or -1 if that move leaves the board. The table never
+ * changes after construction, so it can be shared by many engines.
+ *
+ * The piece is a knight unless another {@link MoveSet} is given. Every
+ * square has one slot per move of the set, so the engines read the moves
+ * of any leaper in the same loop as those of a knight.
+ *
+ * A board can have blocked tiles, e.g. to tour an irregular shape. A
+ * blocked tile has no moves, and no move lands on it, so the engines skip
+ * it without any check of their own; a tour is full once every open tile
+ * has been visited.
+ */
+public class MoveTable {
+    private final int rows;
+    private final int columns;
+    private final MoveSet moveSet;
+    private final int moveCount;
+    private final int[] neighbours;
+    private final int[] degrees;
+    private final boolean[] blocked;
+    private final int openSquareCount;
+
+    /**
+     * Build the knight's move table of a rectangular board.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     */
+    public MoveTable(int rows, int columns) {
+        this(rows, columns, MoveSet.KNIGHT);
+    }
+
+    /**
+     * Build the move table of a piece on a rectangular board.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     * @param moveSet the moves of the piece
+     */
+    public MoveTable(int rows, int columns, MoveSet moveSet) {
+        this(rows, columns, moveSet, null);
+    }
+
+    /**
+     * Build the move table of a piece on a board with blocked tiles.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     * @param moveSet the moves of the piece
+     * @param blocked the blocked state of every square, or {@code null} if no tile is blocked
+     */
+    public MoveTable(int rows, int columns, MoveSet moveSet, boolean[] blocked) {
+        if (rows <= 0 || columns <= 0 || (long) rows * columns * moveSet.size() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid board size: " + rows + "x" + columns);
+        }
+        if (blocked != null && blocked.length != rows * columns) {
+            throw new IllegalArgumentException("Invalid mask length: " + blocked.length + " for a " + rows + "x"
+                    + columns + " board");
+        }
+
+        this.rows = rows;
+        this.columns = columns;
+        this.moveSet = moveSet;
+        this.moveCount = moveSet.size();
+        this.neighbours = new int[rows * columns * moveCount];
+        this.degrees = new int[rows * columns];
+        this.blocked = blocked != null ? blocked.clone() : new boolean[rows * columns];
+
+        int openCounter = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int square = row * columns + column;
+                if (!this.blocked[square]) {
+                    openCounter++;
+                }
+
+                for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+                    int nextRow = row + moveSet.getRowOffset(moveNumber);
+                    int nextColumn = column + moveSet.getColumnOffset(moveNumber);
+
+                    if (nextRow >= 0 && nextColumn >= 0 && nextRow < rows && nextColumn < columns
+                            && !this.blocked[square] && !this.blocked[nextRow * columns + nextColumn]) {
+                        neighbours[square * moveCount + moveNumber] = nextRow * columns + nextColumn;
+                        degrees[square]++;
+                    }
+                    else {
+                        neighbours[square * moveCount + moveNumber] = -1;
+                    }
+                }
+            }
+        }
+        this.openSquareCount = openCounter;
+    }
+
+    /**
+     * Build the move table of a board drawn as text.
+     *
+     * Every line is a row of the board, with {@code .} for an open tile and
+     * {@code #} for a blocked one. All the rows must have the same length,
+     * and blank lines at the end are ignored.
+     *
+     * @param lines the rows of the board
+     * @param moveSet the moves of the piece
+     * @return the move table of the board
+     */
+    public static MoveTable fromMask(List<String> lines, MoveSet moveSet) {
+        List<String> rowLines = new ArrayList<>(lines);
+        while (!rowLines.isEmpty() && rowLines.get(rowLines.size() - 1).trim().isEmpty()) {
+            rowLines.remove(rowLines.size() - 1);
+        }
+        if (rowLines.isEmpty()) {
+            throw new IllegalArgumentException("Empty mask");
+        }
+
+        int rows = rowLines.size(), columns = rowLines.get(0).length();
+        boolean[] blocked = new boolean[rows * columns];
+        for (int row = 0; row < rows; row++) {
+            String line = rowLines.get(row);
+            if (line.length() != columns) {
+                throw new IllegalArgumentException("Row " + row + " of the mask has " + line.length()
+                        + " tiles instead of " + columns);
+            }
+            for (int column = 0; column < columns; column++) {
+                char tile = line.charAt(column);
+                if (tile != '.' && tile != '#') {
+                    throw new IllegalArgumentException("Invalid tile '" + tile + "' at (" + row + ", " + column + ")");
+                }
+                blocked[row * columns + column] = tile == '#';
+            }
+        }
+
+        return new MoveTable(rows, columns, moveSet, blocked);
+    }
+
+    /**
+     * Build the move table of a board from a mask file, as in {@link #fromMask(List, MoveSet)}.
+     *
+     * @param file the text file with the rows of the board
+     * @param moveSet the moves of the piece
+     * @return the move table of the board
+     * @throws IOException if the file cannot be read
+     */
+    public static MoveTable readMask(Path file, MoveSet moveSet) throws IOException {
+        return fromMask(Files.readAllLines(file), moveSet);
+    }
+
+    /**
+     * Get the number of rows of the board.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the number of columns of the board.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the moves of the piece.
+     */
+    public MoveSet getMoveSet() {
+        return moveSet;
+    }
+
+    /**
+     * Get the number of moves of the piece, which is the stride of the neighbour table.
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Get the number of tiles of the board.
+     */
+    public int getSquareCount() {
+        return degrees.length;
+    }
+
+    /**
+     * Get the number of tiles that are not blocked, which is the length of a full tour.
+     */
+    public int getOpenSquareCount() {
+        return openSquareCount;
+    }
+
+    /**
+     * Check if a square is blocked.
+     *
+     * @param square the square index of the tile
+     * @return {@code true} if no tour may visit the tile. Otherwise, {@code false}.
+     */
+    public boolean isBlocked(int square) {
+        return blocked[square];
+    }
+
+    /**
+     * Check if the board has any blocked tile.
+     */
+    public boolean hasObstacles() {
+        return openSquareCount < degrees.length;
+    }
+
+    /**
+     * Check if another table is of the same board: the same size, piece and blocked tiles.
+     *
+     * @param other the table to compare with
+     * @return {@code true} if a tour of one board is a tour of the other. Otherwise, {@code false}.
+     */
+    public boolean hasSameBoard(MoveTable other) {
+        return rows == other.rows && columns == other.columns && moveSet.equals(other.moveSet)
+                && Arrays.equals(blocked, other.blocked);
+    }
+
+    /**
+     * Get the destination of a move.
+     *
+     * @param square the square from which the piece moves
+     * @param moveNumber a number below {@link #getMoveCount()}
+     * @return the destination square, or -1 if it is outside the board or blocked
+     */
+    public int getNeighbour(int square, int moveNumber) {
+        return neighbours[square * moveCount + moveNumber];
+    }
+
+    /**
+     * Get the flat neighbour table.
+     *
+     * The destination of move number {@code m} from square {@code s} is
+     * stored at {@code s * getMoveCount() + m}. The returned array
+     * is shared and must not be modified.
+     *
+     * @return the neighbour table of the board
+     */
+    int[] getNeighbours() {
+        return neighbours;
+    }
+
+    /**
+     * Get the number of moves from each square on an empty board.
+     *
+     * The returned array is shared and must not be modified.
+     *
+     * @return the degree of every square
+     */
+    int[] getDegrees() {
+        return degrees;
+    }
+
+    /**
+     * Get the square index of a tile.
+     */
+    public int toSquare(int row, int column) {
+        return row * columns + column;
+    }
+
+    /**
+     * Get the row of a square index.
+     */
+    public int toRow(int square) {
+        return square / columns;
+    }
+
+    /**
+     * Get the column of a square index.
+     */
+    public int toColumn(int square) {
+        return square % columns;
+    }
+
+}
@@ -0,0 +1,367 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Solver that splits the tour of a board between several knights.
+ *
+ * The board is cut into bands along its longer side, one per knight, so
+ * that every band has about the same number of open tiles. Each band gets
+ * its own {@link MoveTable}, cropped to the band and keeping the blocked
+ * tiles of the board, and its knight never leaves it. The bands share no
+ * state, so each one is toured on its own thread of a fork/join pool.
+ *
+ * A knight makes heuristic tours of its band with a {@link MoveStrategy},
+ * from the open tiles with the fewest moves first, as corners are the best
+ * starts for Warnsdorff's rule. It keeps the longest tour and stops at the
+ * first full one, or after a number of attempts.
+ */
+public class MultiKnightSolver {
+    public static final int DEFAULT_ATTEMPT_LIMIT = 64;
+    private final MoveTable moveTable;
+    private final int knights;
+    private final boolean splitRows;
+    private final int[] bounds;
+    private int attemptLimit = DEFAULT_ATTEMPT_LIMIT;
+    private String strategyName = "optimized";
+
+    /**
+     * Construct a solver for a board, which may have blocked tiles.
+     *
+     * @param moveTable the precomputed moves of the piece on the whole board
+     * @param knights the number of knights, at most the length of the longer side
+     */
+    public MultiKnightSolver(MoveTable moveTable, int knights) {
+        this.splitRows = moveTable.getRows() >= moveTable.getColumns();
+        int lines = splitRows ? moveTable.getRows() : moveTable.getColumns();
+        if (knights <= 0 || knights > lines) {
+            throw new IllegalArgumentException("Invalid number of knights: " + knights + " for " + lines + " lines");
+        }
+
+        this.moveTable = moveTable;
+        this.knights = knights;
+        this.bounds = partition(lines);
+    }
+
+    /**
+     * Cut the board into bands of whole rows or columns with about the same
+     * number of open tiles. Every band has at least one line.
+     *
+     * @return the first line of every band, followed by the end of the last one
+     */
+    private int[] partition(int lines) {
+        int[] openCounters = new int[lines];
+        for (int square = 0; square < moveTable.getSquareCount(); square++) {
+            if (!moveTable.isBlocked(square)) {
+                openCounters[splitRows ? moveTable.toRow(square) : moveTable.toColumn(square)]++;
+            }
+        }
+
+        int[] lineBounds = new int[knights + 1];
+        long openCounter = 0;
+        int line = 0;
+        for (int knight = 1; knight < knights; knight++) {
+            long target = (long) moveTable.getOpenSquareCount() * knight / knights;
+            // Leave at least one line for each of the remaining bands
+            int lastLine = lines - (knights - knight);
+            do {
+                openCounter += openCounters[line++];
+            } while (line < lastLine && openCounter + openCounters[line] / 2 < target);
+            lineBounds[knight] = line;
+        }
+        lineBounds[knights] = lines;
+
+        return lineBounds;
+    }
+
+    /**
+     * Set the maximum number of tours that each knight makes of its band.
+     *
+     * @param attemptLimit the number of tours
+     */
+    public void setAttemptLimit(int attemptLimit) {
+        if (attemptLimit <= 0) {
+            throw new IllegalArgumentException("Invalid attempt limit: " + attemptLimit);
+        }
+
+        this.attemptLimit = attemptLimit;
+    }
+
+    /**
+     * Set the rule that chooses every move of the knights. Every knight
+     * gets its own instance, so stateful strategies are not shared.
+     *
+     * @param strategyName the name of the strategy, as accepted by {@link MoveStrategy#forName(String)}
+     */
+    public void setStrategy(String strategyName) {
+        // Fail on an unknown name before any tour is made
+        MoveStrategy.forName(strategyName);
+        this.strategyName = strategyName;
+    }
+
+    /**
+     * Get the number of knights.
+     */
+    public int getKnights() {
+        return knights;
+    }
+
+    /**
+     * Tour every band with its own knight, all at once.
+     *
+     * @return the tour of every knight
+     */
+    public Result solve() {
+        int[][] paths = new int[knights][];
+        int[] openCounters = new int[knights];
+        long[] elapsedNanos = new long[knights];
+        ForkJoinPool pool = new ForkJoinPool(knights);
+
+        long startTime = System.nanoTime();
+        try {
+            pool.submit(() -> IntStream.range(0, knights).parallel().forEach(knight -> {
+                long knightStartTime = System.nanoTime();
+                MoveTable band = cropBand(knight);
+                openCounters[knight] = band.getOpenSquareCount();
+                paths[knight] = toBoardSquares(knight, tourBand(band));
+                elapsedNanos[knight] = System.nanoTime() - knightStartTime;
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while touring the bands", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to tour the bands", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        return new Result(moveTable, paths, openCounters, elapsedNanos, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Build the move table of a band, with the blocked tiles of the board inside it.
+     */
+    private MoveTable cropBand(int knight) {
+        int firstLine = bounds[knight], lineCounter = bounds[knight + 1] - bounds[knight];
+        int rows = splitRows ? lineCounter : moveTable.getRows();
+        int columns = splitRows ? moveTable.getColumns() : lineCounter;
+        int rowOffset = splitRows ? firstLine : 0, columnOffset = splitRows ? 0 : firstLine;
+
+        boolean[] blocked = new boolean[rows * columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int square = moveTable.toSquare(row + rowOffset, column + columnOffset);
+                blocked[row * columns + column] = moveTable.isBlocked(square);
+            }
+        }
+
+        return new MoveTable(rows, columns, moveTable.getMoveSet(), blocked);
+    }
+
+    /**
+     * Make tours of a band from its least accessible open tiles first, and
+     * keep the longest one.
+     *
+     * @return the squares of the band visited by its knight
+     */
+    private int[] tourBand(MoveTable band) {
+        int[] degrees = band.getDegrees();
+        int[] starts = new int[Math.min(attemptLimit, band.getOpenSquareCount())];
+        int startCounter = 0;
+        for (int degree = 0; degree <= band.getMoveCount() && startCounter < starts.length; degree++) {
+            for (int square = 0; square < degrees.length && startCounter < starts.length; square++) {
+                if (degrees[square] == degree && !band.isBlocked(square)) {
+                    starts[startCounter++] = square;
+                }
+            }
+        }
+
+        TourEngine engine = new TourEngine(band);
+        MoveStrategy strategy = MoveStrategy.forName(strategyName);
+        int[] longestPath = new int[0];
+        for (int start : starts) {
+            boolean full = engine.runTour(band.toRow(start), band.toColumn(start), strategy);
+            if (engine.getVisitedTileCounter() > longestPath.length) {
+                longestPath = engine.getPath();
+            }
+            if (full) {
+                break;
+            }
+        }
+
+        return longestPath;
+    }
+
+    /**
+     * Map the squares of a band to those of the whole board.
+     */
+    private int[] toBoardSquares(int knight, int[] bandPath) {
+        int firstLine = bounds[knight];
+        int bandColumns = splitRows ? moveTable.getColumns() : bounds[knight + 1] - firstLine;
+
+        int[] boardPath = new int[bandPath.length];
+        for (int step = 0; step < bandPath.length; step++) {
+            int row = bandPath[step] / bandColumns, column = bandPath[step] % bandColumns;
+            boardPath[step] = splitRows ? moveTable.toSquare(row + firstLine, column)
+                    : moveTable.toSquare(row, column + firstLine);
+        }
+
+        return boardPath;
+    }
+
+    /**
+     * The tours of all the knights on a board.
+     */
+    public static class Result {
+        private final MoveTable moveTable;
+        private final int[][] paths;
+        private final int[] openCounters;
+        private final long[] elapsedNanos;
+        private final long totalElapsedNanos;
+
+        Result(MoveTable moveTable, int[][] paths, int[] openCounters, long[] elapsedNanos, long totalElapsedNanos) {
+            this.moveTable = moveTable;
+            this.paths = paths;
+            this.openCounters = openCounters;
+            this.elapsedNanos = elapsedNanos;
+            this.totalElapsedNanos = totalElapsedNanos;
+        }
+
+        /**
+         * Get the number of knights.
+         */
+        public int getKnights() {
+            return paths.length;
+        }
+
+        /**
+         * Get the squares of the board visited by a knight, in the order it visited them.
+         *
+         * @param knight a number below {@link #getKnights()}
+         */
+        public int[] getPath(int knight) {
+            return paths[knight].clone();
+        }
+
+        /**
+         * Get the number of open tiles in the band of a knight.
+         *
+         * @param knight a number below {@link #getKnights()}
+         */
+        public int getOpenSquareCount(int knight) {
+            return openCounters[knight];
+        }
+
+        /**
+         * Check if a knight visited every open tile of its band.
+         *
+         * @param knight a number below {@link #getKnights()}
+         */
+        public boolean isFullTour(int knight) {
+            return paths[knight].length == openCounters[knight];
+        }
+
+        /**
+         * Get the time taken by the tours of a knight in nanoseconds.
+         *
+         * @param knight a number below {@link #getKnights()}
+         */
+        public long getElapsedNanos(int knight) {
+            return elapsedNanos[knight];
+        }
+
+        /**
+         * Get the wall-clock time taken by all the knights in nanoseconds.
+         */
+        public long getTotalElapsedNanos() {
+            return totalElapsedNanos;
+        }
+
+        /**
+         * Get the number of open tiles visited by any knight.
+         */
+        public long getVisitedTileCounter() {
+            return Arrays.stream(paths).mapToLong(path -> path.length).sum();
+        }
+
+        /**
+         * Get the share of the open tiles of the board visited by the knights.
+         *
+         * @return a number between 0 and 1
+         */
+        public double getCoverage() {
+            int openSquareCount = moveTable.getOpenSquareCount();
+            return openSquareCount == 0 ? 1 : (double) getVisitedTileCounter() / openSquareCount;
+        }
+
+        /**
+         * Get a grid of the board, where every visited tile shows the letter
+         * of its knight, a missed tile {@code .} and a blocked tile {@code #}.
+         */
+        public String toGrid() {
+            char[] tiles = new char[moveTable.getSquareCount()];
+            for (int square = 0; square < tiles.length; square++) {
+                tiles[square] = moveTable.isBlocked(square) ? '#' : '.';
+            }
+            for (int knight = 0; knight < paths.length; knight++) {
+                for (int square : paths[knight]) {
+                    tiles[square] = (char) ('A' + knight % 26);
+                }
+            }
+
+            StringBuilder grid = new StringBuilder();
+            for (int row = 0; row < moveTable.getRows(); row++) {
+                grid.append(tiles, row * moveTable.getColumns(), moveTable.getColumns());
+                grid.append(System.lineSeparator());
+            }
+
+            return grid.toString();
+        }
+    }
+
+    /**
+     * Split the tour of a board between several knights and print the coverage.
+     *
+     * Usage: {@code java MultiKnightSolver [knights] [rows] [columns] [strategy]},
+     * or {@code java MultiKnightSolver [knights] [maskFile] [strategy]} for a
+     * board drawn in a mask file, see {@link MoveTable#fromMask}.
+     */
+    public static void main(String[] args) throws IOException {
+        int knights = args.length >= 1 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        MoveTable moveTable;
+        int strategyIndex;
+        if (args.length >= 2 && Files.isRegularFile(Paths.get(args[1]))) {
+            moveTable = MoveTable.readMask(Paths.get(args[1]), MoveSet.KNIGHT);
+            strategyIndex = 2;
+        }
+        else {
+            int rows = args.length >= 2 ? Integer.parseInt(args[1]) : 100;
+            int columns = args.length >= 3 ? Integer.parseInt(args[2]) : rows;
+            moveTable = new MoveTable(rows, columns);
+            strategyIndex = 3;
+        }
+
+        MultiKnightSolver solver = new MultiKnightSolver(moveTable, knights);
+        if (args.length > strategyIndex) {
+            solver.setStrategy(args[strategyIndex]);
+        }
+        Result result = solver.solve();
+
+        if (moveTable.getColumns() <= 80 && moveTable.getRows() <= 50) {
+            System.out.print(result.toGrid());
+        }
+        for (int knight = 0; knight < result.getKnights(); knight++) {
+            System.out.printf("Knight %c: %d/%d tiles%s in %.3f ms%n", 'A' + knight % 26, result.getPath(knight).length,
+                    result.getOpenSquareCount(knight), result.isFullTour(knight) ? " (full)" : "",
+                    result.getElapsedNanos(knight) / 1e6);
+        }
+        System.out.printf("Coverage: %d/%d open tiles (%.2f%%) in %.3f ms with %d knights%n",
+                result.getVisitedTileCounter(), moveTable.getOpenSquareCount(), result.getCoverage() * 100,
+                result.getTotalElapsedNanos() / 1e6, knights);
+    }
+
+}
@@ -7,33 +7,44 @@ import javax.swing.*;
  */
 public class OptimizedHeuristic extends JFrame {
     public OptimizedHeuristic() {
+        this(Board.DEFAULT_SIZE, Board.DEFAULT_SIZE);
+    }
+
+    public OptimizedHeuristic(int rows, int columns) {
+        this(rows, columns, Board.DEFAULT_FRAMES_PER_SECOND, Board.DEFAULT_MOVES_PER_SECOND);
+    }
+
+    public OptimizedHeuristic(int rows, int columns, int framesPerSecond, int movesPerSecond) {
+        this(rows, columns, framesPerSecond, movesPerSecond, MoveSet.KNIGHT);
+    }
+
+    public OptimizedHeuristic(int rows, int columns, int framesPerSecond, int movesPerSecond, MoveSet moveSet) {
         super("Knight's Tour: Optimized Heuristic Version");
         Container contents = getContentPane();
-        contents.setLayout(new GridLayout(8, 8));
+        contents.setLayout(new GridLayout(rows, columns));
 
-        Board chessboard = new Board();
+        Board chessboard = new Board(rows, columns, moveSet);
 
-        for (int row = 0; row < Board.BOARD_SIZE; row++) {
-            for (int column = 0; column < Board.BOARD_SIZE; column++) {
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
                 contents.add(chessboard.getTile(row, column));
             }
         }
 
-        setSize(600, 600);
+        setSize(chessboard.getPreferredWindowSize(600));
         setResizable(false);
         setLocationRelativeTo(null);
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setVisible(true);
 
-        for (int row = 0; row < Board.BOARD_SIZE; row++) {
-            for (int column = 0; column < Board.BOARD_SIZE; column++) {
-                chessboard.runTour(row, column, true);
-                chessboard.resetBoard();
-            }
-        }
+        chessboard.animateTours(WarnsdorffStrategy.OPTIMIZED, framesPerSecond, movesPerSecond);
     }
 
     public static void main(String[] args) {
-        new OptimizedHeuristic();
+        int[] dimensions = Board.parseDimensions(args);
+        int framesPerSecond = args.length >= 3 ? Integer.parseInt(args[2]) : Board.DEFAULT_FRAMES_PER_SECOND;
+        int movesPerSecond = args.length >= 4 ? Integer.parseInt(args[3]) : Board.DEFAULT_MOVES_PER_SECOND;
+        MoveSet moveSet = Board.parseMoveSet(args, 4);
+        SwingUtilities.invokeLater(() -> new OptimizedHeuristic(dimensions[0], dimensions[1], framesPerSecond, movesPerSecond, moveSet));
     }
 }
\ No newline at end of file
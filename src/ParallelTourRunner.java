@@ -0,0 +1,165 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Runner for making a tour from every starting square of a board in parallel.
+ *
+ * The starting squares are spread over a fork/join pool. All the tasks share
+ * one read-only {@link MoveTable}, and every worker thread owns a separate
+ * {@link TourEngine}, so no board state is shared between tours.
+ */
+public class ParallelTourRunner {
+    private final MoveTable moveTable;
+    private final int threads;
+
+    /**
+     * Construct a runner that uses every available core.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     */
+    public ParallelTourRunner(int rows, int columns) {
+        this(rows, columns, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct a runner with a fixed number of worker threads.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     * @param threads the number of worker threads
+     */
+    public ParallelTourRunner(int rows, int columns, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+
+        this.moveTable = new MoveTable(rows, columns);
+        this.threads = threads;
+    }
+
+    /**
+     * Make a tour from every starting square of the board.
+     *
+     * @param optimized turn on/off optimization mode for "tied" squares
+     * @return the outcome of the tour from each starting square
+     */
+    public Result runAllTours(boolean optimized) {
+        int squareCount = moveTable.getSquareCount();
+        boolean[] fullTours = new boolean[squareCount];
+        ThreadLocal<TourEngine> engines = ThreadLocal.withInitial(() -> new TourEngine(moveTable));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        long startTime = System.nanoTime();
+        try {
+            pool.submit(() -> IntStream.range(0, squareCount).parallel().forEach(square -> {
+                TourEngine engine = engines.get();
+                fullTours[square] = engine.runTour(moveTable.toRow(square), moveTable.toColumn(square), optimized);
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running tours", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to run tours", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        return new Result(moveTable.getRows(), moveTable.getColumns(), fullTours, System.nanoTime() - startTime);
+    }
+
+    /**
+     * The outcome of a tour from every starting square of a board.
+     */
+    public static class Result {
+        private final int rows;
+        private final int columns;
+        private final boolean[] fullTours;
+        private final long elapsedNanos;
+        private final int fullTourCounter;
+
+        Result(int rows, int columns, boolean[] fullTours, long elapsedNanos) {
+            this.rows = rows;
+            this.columns = columns;
+            this.fullTours = fullTours;
+            this.elapsedNanos = elapsedNanos;
+
+            int counter = 0;
+            for (boolean fullTour : fullTours) {
+                if (fullTour) {
+                    counter++;
+                }
+            }
+            this.fullTourCounter = counter;
+        }
+
+        /**
+         * Check if the tour from a starting tile visited every tile.
+         *
+         * @param row the starting row of the tour
+         * @param column the starting column of the tour
+         * @return {@code true} if the tour is full. Otherwise, {@code false}.
+         */
+        public boolean isFullTour(int row, int column) {
+            return fullTours[row * columns + column];
+        }
+
+        /**
+         * Get the number of starting tiles from which a full tour was made.
+         */
+        public int getFullTourCounter() {
+            return fullTourCounter;
+        }
+
+        /**
+         * Get the number of tours that were made.
+         */
+        public int getTourCounter() {
+            return fullTours.length;
+        }
+
+        /**
+         * Get the wall-clock time taken by all the tours in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Get a grid of the starting tiles, where a full tour is marked with
+         * {@code O} and a failed tour with {@code X}.
+         */
+        public String toGrid() {
+            StringBuilder grid = new StringBuilder();
+
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    grid.append(isFullTour(row, column) ? 'O' : 'X');
+                }
+                grid.append(System.lineSeparator());
+            }
+
+            return grid.toString();
+        }
+    }
+
+    /**
+     * Run a tour from every starting square and print the outcome.
+     *
+     * Usage: {@code java ParallelTourRunner [rows] [columns] [heuristic|optimized] [threads]}
+     */
+    public static void main(String[] args) {
+        int rows = args.length >= 1 ? Integer.parseInt(args[0]) : TourEngine.DEFAULT_SIZE;
+        int columns = args.length >= 2 ? Integer.parseInt(args[1]) : rows;
+        boolean optimized = args.length < 3 || args[2].equals("optimized");
+        int threads = args.length >= 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        Result result = new ParallelTourRunner(rows, columns, threads).runAllTours(optimized);
+
+        System.out.print(result.toGrid());
+        System.out.printf("Full tours: %d/%d in %.3f ms on %d threads%n", result.getFullTourCounter(),
+                result.getTourCounter(), result.getElapsedNanos() / 1e6, threads);
+    }
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Pohl's extension of Warnsdorff's rule with a deeper lookahead.
+ *
+ * When several squares share the lowest score, the knight tries each of them
+ * in turn and applies the same rule from there, up to a fixed depth. The tied
+ * square whose own best continuation has the lowest scores wins, and any
+ * remaining tie is broken by the lowest move number. The lookahead goes
+ * through every square of the lowest score, so a tie further down is
+ * explored as well.
+ *
+ * Looking ahead moves the knight on the engine and takes the move back, so a
+ * tie costs a few extra moves but no memory. With metrics on, every score
+ * read and every square moved to during the lookahead is recorded.
+ */
+public class PohlStrategy implements MoveStrategy {
+    public static final int DEFAULT_DEPTH = 2;
+    private static final int MAX_DEPTH = 8;
+    private static final int EVALUATIONS = 0, TIES = 1, LOOKAHEADS = 2, WORK_COUNTERS = 3;
+    private final int depth;
+
+    /**
+     * Construct a strategy with the default depth.
+     */
+    public PohlStrategy() {
+        this(DEFAULT_DEPTH);
+    }
+
+    /**
+     * Construct a strategy with a custom depth.
+     *
+     * @param depth the number of moves to look ahead when squares are tied,
+     *              between 1 and 8
+     */
+    public PohlStrategy(int depth) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Invalid lookahead depth: " + depth);
+        }
+
+        this.depth = depth;
+    }
+
+    /**
+     * Get the number of moves to look ahead when squares are tied.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public int selectMove(TourEngine engine) {
+        int[] work = new int[WORK_COUNTERS];
+        long result = search(engine, depth, work);
+        engine.recordSelection(work[EVALUATIONS], work[TIES], work[LOOKAHEADS]);
+
+        return result < 0 ? -1 : (int) (result % engine.getMoveTable().getMoveCount());
+    }
+
+    /**
+     * Score the best move from the knight's current position.
+     *
+     * The score packs the lowest accessibility score of each level of the
+     * lookahead in base {@code n + 1}, where {@code n} is the number of moves
+     * of the piece, from the nearest level to the farthest, so that scores
+     * compare level by level. A continuation in which the knight is stuck
+     * before the end of the tour gets the worst score.
+     *
+     * @param work the evaluations, top level ties and lookaheads counted so far
+     * @return the score times {@code n} plus the move number,
+     *         or -1 if the knight is out of valid moves
+     */
+    private long search(TourEngine engine, int remainingDepth, int[] work) {
+        MoveTable moveTable = engine.getMoveTable();
+        int square = engine.getCurrentSquare();
+        int moveCount = moveTable.getMoveCount(), scoreBase = moveCount + 1;
+        int minScore = Integer.MAX_VALUE, optimalMoveNumber = -1, tieCounter = 0;
+
+        for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+            int next = moveTable.getNeighbour(square, moveNumber);
+
+            if (next >= 0 && engine.isNotVisited(next)) {
+                int score = engine.getAccessibilityScore(next);
+                work[EVALUATIONS]++;
+                if (score < minScore) {
+                    minScore = score;
+                    optimalMoveNumber = moveNumber;
+                    tieCounter = 1;
+                }
+                else if (score == minScore) {
+                    tieCounter++;
+                }
+            }
+        }
+
+        if (tieCounter == 0) {
+            return -1;
+        }
+        if (remainingDepth == depth) {
+            work[TIES] = tieCounter - 1;
+        }
+        if (remainingDepth == 0 || (tieCounter == 1 && remainingDepth == depth)) {
+            // Only the order of tied squares matters at the top level
+            return (minScore * pow(scoreBase, remainingDepth)) * moveCount + optimalMoveNumber;
+        }
+
+        long worstContinuation = pow(scoreBase, remainingDepth) - 1;
+        long bestContinuation = Long.MAX_VALUE;
+        for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+            int next = moveTable.getNeighbour(square, moveNumber);
+
+            if (next >= 0 && engine.isNotVisited(next) && engine.getAccessibilityScore(next) == minScore) {
+                engine.advance(next);
+                work[LOOKAHEADS]++;
+                long result = search(engine, remainingDepth - 1, work);
+                long continuation = result >= 0 ? result / moveCount
+                        : engine.isFullTour() ? 0 : worstContinuation;
+                engine.retreat();
+
+                if (continuation < bestContinuation) {
+                    bestContinuation = continuation;
+                    optimalMoveNumber = moveNumber;
+                }
+            }
+        }
+
+        return (minScore * pow(scoreBase, remainingDepth) + bestContinuation) * moveCount + optimalMoveNumber;
+    }
+
+    private static long pow(int base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+
+        return result;
+    }
+
+}
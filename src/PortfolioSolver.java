@@ -0,0 +1,307 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Solver that races several approaches for the tour from one starting square.
+ *
+ * The portfolio has one {@link BacktrackingSolver} and any number of greedy
+ * runners. Every greedy runner makes Warnsdorff tours with ties broken at
+ * random, as in {@link RandomTieStrategy}, and restarts with a new seed when
+ * the knight is stuck; the seeds of the runners never overlap.
+ *
+ * Most starts are solved by the deterministic {@link WarnsdorffStrategy#OPTIMIZED}
+ * tour, so it is made first on the calling thread, and the race only starts
+ * if it fails. An easy start therefore costs a single tour and no threads.
+ *
+ * Every member runs on its own thread of a fork/join pool, which the solver
+ * keeps for its lifetime, so a race does not start new threads. Concurrent
+ * calls share the pool, and their members take turns. The first full tour
+ * wins, and the other members are cancelled cooperatively through a shared
+ * flag: the backtracking search polls it as it polls the clock, and a
+ * greedy runner checks it, and the deadline, every few thousand moves. The
+ * flag is also raised when the backtracking search proves that the start
+ * has no tour. The solver waits for every member to stop before it returns,
+ * so no work leaks into the next call.
+ */
+public class PortfolioSolver {
+    public static final int DEFAULT_RESTART_LIMIT = 1000;
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    private final MoveTable moveTable;
+    private final int greedyRunners;
+    private final ForkJoinPool pool;
+    private int restartLimit = DEFAULT_RESTART_LIMIT;
+    private long timeoutMillis = 0;
+
+    /**
+     * Construct a portfolio that uses every available core, and at least one greedy runner.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     */
+    public PortfolioSolver(int rows, int columns) {
+        this(new MoveTable(rows, columns), Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /**
+     * Construct a portfolio on top of an existing move table.
+     *
+     * @param moveTable the precomputed moves of the board
+     * @param greedyRunners the number of greedy runners, which race the backtracking search
+     */
+    public PortfolioSolver(MoveTable moveTable, int greedyRunners) {
+        if (greedyRunners <= 0) {
+            throw new IllegalArgumentException("Invalid number of greedy runners: " + greedyRunners);
+        }
+
+        this.moveTable = moveTable;
+        this.greedyRunners = greedyRunners;
+        this.pool = new ForkJoinPool(greedyRunners + 1);
+    }
+
+    /**
+     * Get the move table used by the solver.
+     */
+    public MoveTable getMoveTable() {
+        return moveTable;
+    }
+
+    /**
+     * Set the maximum number of tours that every greedy runner makes.
+     *
+     * @param restartLimit the number of tours, or {@link Integer#MAX_VALUE} for no limit
+     */
+    public void setRestartLimit(int restartLimit) {
+        if (restartLimit <= 0) {
+            throw new IllegalArgumentException("Invalid restart limit: " + restartLimit);
+        }
+
+        this.restartLimit = restartLimit;
+    }
+
+    /**
+     * Set the maximum time of a race, after which every member gives up.
+     *
+     * @param timeoutMillis the timeout in milliseconds, or 0 for no limit
+     */
+    public void setTimeout(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Search for a tour from a starting tile.
+     *
+     * @param initialRow the starting row of the tour
+     * @param initialColumn the starting column of the tour
+     * @return the outcome of the race
+     */
+    public Result solve(int initialRow, int initialColumn) {
+        return solve(moveTable.toSquare(initialRow, initialColumn));
+    }
+
+    /**
+     * Search for a tour from a starting square.
+     *
+     * @param initialSquare the starting square of the tour
+     * @return the outcome of the race
+     */
+    public Result solve(int initialSquare) {
+        long startTime = System.nanoTime();
+        TourEngine engine = new TourEngine(moveTable);
+        if (engine.runTour(moveTable.toRow(initialSquare), moveTable.toColumn(initialSquare), WarnsdorffStrategy.OPTIMIZED)) {
+            return new Result(engine.getPath(), "optimized", 1, System.nanoTime() - startTime);
+        }
+
+        AtomicBoolean stopped = new AtomicBoolean();
+        long deadline = timeoutMillis > 0 ? startTime + timeoutMillis * 1_000_000L : 0;
+        ExecutorCompletionService<Result> race = new ExecutorCompletionService<>(pool);
+
+        race.submit(() -> backtrack(initialSquare, deadline, stopped));
+        for (int runner = 0; runner < greedyRunners; runner++) {
+            int firstSeed = runner;
+            race.submit(() -> restart(initialSquare, firstSeed, deadline, stopped));
+        }
+
+        Result winner = null;
+        long attemptCounter = 1;
+        try {
+            for (int member = 0; member <= greedyRunners; member++) {
+                Result result = race.take().get();
+                attemptCounter += result.attemptCounter;
+                if (winner == null && result.isFound()) {
+                    winner = result;
+                    stopped.set(true);
+                }
+            }
+        } catch (InterruptedException e) {
+            stopped.set(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while racing for a tour", e);
+        } catch (ExecutionException e) {
+            stopped.set(true);
+            throw new IllegalStateException("Failed to race for a tour", e.getCause());
+        }
+
+        long elapsedNanos = System.nanoTime() - startTime;
+        return winner == null ? new Result(null, null, attemptCounter, elapsedNanos)
+                : new Result(winner.path, winner.winnerName, attemptCounter, elapsedNanos);
+    }
+
+    private Result backtrack(int initialSquare, long deadline, AtomicBoolean stopped) {
+        BacktrackingSolver solver = new BacktrackingSolver(moveTable);
+        if (deadline != 0) {
+            // The optimized tour and the wait for a thread already took part of the time
+            solver.setTimeout(Math.max(1, (deadline - System.nanoTime()) / 1_000_000L));
+        }
+        solver.setCancellation(stopped::get);
+
+        BacktrackingSolver.Result result = solver.solve(initialSquare);
+        if (result.getStatus() == BacktrackingSolver.Status.EXHAUSTED) {
+            // No tour exists, so the greedy runners cannot find one either
+            stopped.set(true);
+        }
+        return new Result(result.getPath(), "backtracking", 1, 0);
+    }
+
+    /**
+     * Make greedy tours until one is full, the restart limit or the deadline
+     * is reached, or another member has won. Runner {@code r} of {@code n}
+     * uses the seeds {@code r}, {@code r + n}, {@code r + 2n} and so on.
+     */
+    private Result restart(int initialSquare, int firstSeed, long deadline, AtomicBoolean stopped) {
+        TourEngine engine = new TourEngine(moveTable);
+        int row = moveTable.toRow(initialSquare), column = moveTable.toColumn(initialSquare);
+
+        int attempt = 0;
+        for (long seed = firstSeed; attempt < restartLimit && !isOver(deadline, stopped); seed += greedyRunners) {
+            attempt++;
+            MoveStrategy strategy = new RandomTieStrategy(seed);
+            engine.reset();
+            engine.start(row, column);
+            // A tour of a large board is long, so the race is also checked during a tour
+            while (engine.continueTour(strategy, TIME_CHECK_INTERVAL) == TIME_CHECK_INTERVAL) {
+                if (isOver(deadline, stopped)) {
+                    return new Result(null, null, attempt, 0);
+                }
+            }
+
+            if (engine.isFullTour()) {
+                return new Result(engine.getPath(), "random:" + seed, attempt, 0);
+            }
+        }
+
+        return new Result(null, null, attempt, 0);
+    }
+
+    private static boolean isOver(long deadline, AtomicBoolean stopped) {
+        return stopped.get() || deadline != 0 && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * The outcome of a race for a tour.
+     */
+    public static class Result {
+        private final int[] path;
+        private final String winnerName;
+        private final long attemptCounter;
+        private final long elapsedNanos;
+
+        Result(int[] path, String winnerName, long attemptCounter, long elapsedNanos) {
+            this.path = path;
+            this.winnerName = winnerName;
+            this.attemptCounter = attemptCounter;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Check if a tour has been found.
+         */
+        public boolean isFound() {
+            return path != null;
+        }
+
+        /**
+         * Get the squares of the tour in the order they are visited.
+         *
+         * @return the path of the tour, or {@code null} if no tour was found
+         */
+        public int[] getPath() {
+            return path;
+        }
+
+        /**
+         * Get the member that found the tour: {@code backtracking}, {@code optimized},
+         * or the name of a random strategy, as accepted by {@link MoveStrategy#forName(String)}.
+         *
+         * @return the name of the winner, or {@code null} if no tour was found
+         */
+        public String getWinnerName() {
+            return winnerName;
+        }
+
+        /**
+         * Get the number of greedy tours and backtracking searches made by all the members.
+         */
+        public long getAttemptCounter() {
+            return attemptCounter;
+        }
+
+        /**
+         * Get the wall-clock time of the race in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    /**
+     * Race for a tour from every starting square and print the latency of
+     * the portfolio next to that of a single optimized tour.
+     *
+     * Usage: {@code java PortfolioSolver [rows] [columns] [greedyRunners] [timeoutMillis]}
+     */
+    public static void main(String[] args) {
+        int rows = args.length >= 1 ? Integer.parseInt(args[0]) : TourEngine.DEFAULT_SIZE;
+        int columns = args.length >= 2 ? Integer.parseInt(args[1]) : rows;
+        int greedyRunners = args.length >= 3 ? Integer.parseInt(args[2])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        long timeoutMillis = args.length >= 4 ? Long.parseLong(args[3]) : 10_000;
+
+        PortfolioSolver solver = new PortfolioSolver(new MoveTable(rows, columns), greedyRunners);
+        solver.setTimeout(timeoutMillis);
+        TourEngine engine = new TourEngine(solver.getMoveTable());
+
+        int squareCount = rows * columns, fullTourCounter = 0, greedyFullTourCounter = 0;
+        long[] latencies = new long[squareCount], greedyLatencies = new long[squareCount];
+        Map<String, Integer> winners = new TreeMap<>();
+        for (int square = 0; square < squareCount; square++) {
+            long startTime = System.nanoTime();
+            if (engine.runTour(square / columns, square % columns, true)) {
+                greedyFullTourCounter++;
+            }
+            greedyLatencies[square] = System.nanoTime() - startTime;
+
+            Result result = solver.solve(square);
+            latencies[square] = result.getElapsedNanos();
+            if (result.isFound()) {
+                fullTourCounter++;
+                winners.merge(result.getWinnerName().split(":")[0], 1, Integer::sum);
+            }
+        }
+
+        Arrays.sort(latencies);
+        Arrays.sort(greedyLatencies);
+        System.out.printf("Optimized: %d/%d full, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", greedyFullTourCounter,
+                squareCount, greedyLatencies[squareCount / 2] / 1e6, greedyLatencies[squareCount * 99 / 100] / 1e6,
+                greedyLatencies[squareCount - 1] / 1e6);
+        System.out.printf("Portfolio: %d/%d full, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", fullTourCounter,
+                squareCount, latencies[squareCount / 2] / 1e6, latencies[squareCount * 99 / 100] / 1e6,
+                latencies[squareCount - 1] / 1e6);
+        System.out.println("Winners: " + winners);
+    }
+
+}
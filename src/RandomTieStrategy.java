@@ -0,0 +1,76 @@
+import java.util.SplittableRandom;
+
+/**
+ * Warnsdorff's rule with ties broken at random.
+ *
+ * Every square of the lowest score is equally likely to be chosen. The
+ * random numbers come from a seed, so a run can be repeated, and restarting
+ * a failed tour with another seed is a cheap way to find a full one.
+ *
+ * A strategy owns its random generator, so it must not be shared between
+ * threads.
+ */
+public class RandomTieStrategy implements MoveStrategy {
+    private final long seed;
+    private SplittableRandom random;
+
+    /**
+     * Construct a strategy with a seed of 0.
+     */
+    public RandomTieStrategy() {
+        this(0);
+    }
+
+    /**
+     * Construct a strategy with a fixed seed.
+     *
+     * @param seed the seed of the random generator
+     */
+    public RandomTieStrategy(long seed) {
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Get the seed of the random generator.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Restart the random generator from its seed, so the same choices are made again.
+     */
+    public void reset() {
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public int selectMove(TourEngine engine) {
+        MoveTable moveTable = engine.getMoveTable();
+        int square = engine.getCurrentSquare();
+        int minScore = Integer.MAX_VALUE, optimalMoveNumber = -1, tieCounter = 0, evaluations = 0;
+
+        for (int moveNumber = 0; moveNumber < moveTable.getMoveCount(); moveNumber++) {
+            int next = moveTable.getNeighbour(square, moveNumber);
+
+            if (next >= 0 && engine.isNotVisited(next)) {
+                int score = engine.getAccessibilityScore(next);
+                evaluations++;
+                if (score < minScore) {
+                    minScore = score;
+                    optimalMoveNumber = moveNumber;
+                    tieCounter = 1;
+                }
+                else if (score == minScore && random.nextInt(++tieCounter) == 0) {
+                    // Reservoir sampling keeps each tied move with equal probability
+                    optimalMoveNumber = moveNumber;
+                }
+            }
+        }
+
+        engine.recordSelection(evaluations, Math.max(0, tieCounter - 1), 0);
+        return optimalMoveNumber;
+    }
+
+}
@@ -0,0 +1,170 @@
+import java.util.Arrays;
+
+/**
+ * Warnsdorff's rule with ties broken by a fixed order of move numbers.
+ *
+ * Squirrel and Cull showed that Warnsdorff's rule makes a full tour of a
+ * large square board from its corner when ties are broken by a move order
+ * chosen for the board size modulo 8. The knight orders below are given for
+ * a tour from the top left corner; a tour from any other tile mirrors the
+ * rows and columns of the order, so that it is seen from the corner nearest
+ * to its start. Boards from {@value #LARGE_BOARD_SIZE} tiles on a side use
+ * a second table, because the orders of smaller boards get stuck there.
+ *
+ * The orders were found by trying every order of the knight's moves on
+ * these boards. From every corner of every square board from 5x5 to
+ * 1000x1000, the tour is full. From other starts and on rectangular boards, which use the
+ * orders of their shorter side, this is still Warnsdorff's rule with a
+ * consistent tie-break, but a full tour is not guaranteed.
+ *
+ * The strategy has no state, so it can be shared by any number of engines.
+ */
+public class SquirrelCullStrategy implements MoveStrategy {
+    public static final int LARGE_BOARD_SIZE = 740;
+    private static final int SIZE_MODULUS = 8;
+    // Knight orders from the top left corner, indexed by the board size modulo 8
+    private static final int[][] KNIGHT_ORDERS = {
+        { 0, 1, 2, 7, 4, 5, 6, 3 },
+        { 2, 3, 4, 1, 6, 7, 5, 0 },
+        { 0, 1, 7, 2, 5, 4, 6, 3 },
+        { 0, 1, 2, 7, 5, 4, 3, 6 },
+        { 0, 2, 5, 4, 6, 7, 1, 3 },
+        { 0, 2, 7, 1, 4, 3, 6, 5 },
+        { 0, 1, 2, 7, 5, 4, 6, 3 },
+        { 0, 2, 1, 7, 4, 5, 3, 6 }
+    };
+    private static final int[][] LARGE_KNIGHT_ORDERS = {
+        { 1, 7, 0, 2, 5, 4, 6, 3 },
+        { 1, 0, 2, 7, 5, 4, 3, 6 },
+        { 0, 1, 7, 2, 5, 4, 6, 3 },
+        { 0, 1, 2, 7, 5, 4, 3, 6 },
+        { 0, 2, 5, 4, 6, 7, 1, 3 },
+        { 1, 0, 2, 7, 4, 5, 3, 6 },
+        { 0, 1, 7, 2, 4, 5, 6, 3 },
+        { 0, 2, 1, 7, 4, 5, 3, 6 }
+    };
+    // Every order of both tables, mirrored for a start in each quarter of the board
+    private static final int[][][] MIRRORED_ORDERS = new int[2 * SIZE_MODULUS][4][];
+
+    static {
+        for (int residue = 0; residue < SIZE_MODULUS; residue++) {
+            for (int quarter = 0; quarter < 4; quarter++) {
+                MIRRORED_ORDERS[residue][quarter] = mirror(KNIGHT_ORDERS[residue], quarter);
+                MIRRORED_ORDERS[SIZE_MODULUS + residue][quarter] = mirror(LARGE_KNIGHT_ORDERS[residue], quarter);
+            }
+        }
+    }
+
+    private final int[] customOrder;
+
+    /**
+     * Construct a strategy with the built-in knight orders. Other pieces
+     * break ties by ascending move number.
+     */
+    public SquirrelCullStrategy() {
+        this.customOrder = null;
+    }
+
+    /**
+     * Construct a strategy with a custom move order, which is used as given
+     * from every start.
+     *
+     * @param moveOrder every move number of the piece once, from the most
+     *                  preferred to the least preferred
+     */
+    public SquirrelCullStrategy(int[] moveOrder) {
+        boolean[] seen = new boolean[moveOrder.length];
+        boolean valid = moveOrder.length > 0;
+        for (int moveNumber : moveOrder) {
+            valid &= moveNumber >= 0 && moveNumber < moveOrder.length && !seen[moveNumber];
+            if (valid) {
+                seen[moveNumber] = true;
+            }
+        }
+        if (!valid) {
+            throw new IllegalArgumentException("Invalid move order: " + Arrays.toString(moveOrder));
+        }
+
+        this.customOrder = moveOrder.clone();
+    }
+
+    @Override
+    public int selectMove(TourEngine engine) {
+        MoveTable moveTable = engine.getMoveTable();
+        if (customOrder != null) {
+            if (customOrder.length != moveTable.getMoveCount()) {
+                throw new IllegalStateException("The move order has " + customOrder.length
+                        + " moves, but the piece has " + moveTable.getMoveCount());
+            }
+            return selectMove(engine, customOrder);
+        }
+        if (!moveTable.getMoveSet().equals(MoveSet.KNIGHT)) {
+            return selectMove(engine, null);
+        }
+
+        int rows = moveTable.getRows(), columns = moveTable.getColumns();
+        int size = Math.min(rows, columns);
+        int start = engine.getStartSquare();
+        int row = moveTable.toRow(start), column = moveTable.toColumn(start);
+        int quarter = (row > rows - 1 - row ? 1 : 0) | (column > columns - 1 - column ? 2 : 0);
+
+        int table = (size >= LARGE_BOARD_SIZE ? SIZE_MODULUS : 0) + size % SIZE_MODULUS;
+        return selectMove(engine, MIRRORED_ORDERS[table][quarter]);
+    }
+
+    /**
+     * Mirror a knight order of the top left corner onto another corner.
+     *
+     * @param order the move order seen from the top left corner
+     * @param quarter 1 to mirror the rows, 2 to mirror the columns, 3 for both
+     * @return the same order of moves, seen from the other corner
+     */
+    private static int[] mirror(int[] order, int quarter) {
+        int rowSign = (quarter & 1) != 0 ? -1 : 1;
+        int columnSign = (quarter & 2) != 0 ? -1 : 1;
+
+        int[] mirrored = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            mirrored[i] = MoveSet.KNIGHT.indexOf(rowSign * MoveSet.KNIGHT.getRowOffset(order[i]),
+                    columnSign * MoveSet.KNIGHT.getColumnOffset(order[i]));
+        }
+
+        return mirrored;
+    }
+
+    /**
+     * Choose the move to the neighbour with the fewest onward moves, preferring
+     * the earliest move in the order when neighbours are tied.
+     *
+     * @param order the move numbers from the most preferred, or {@code null}
+     *              for ascending move numbers
+     */
+    private static int selectMove(TourEngine engine, int[] order) {
+        MoveTable moveTable = engine.getMoveTable();
+        int square = engine.getCurrentSquare();
+        int minScore = Integer.MAX_VALUE, optimalMoveNumber = -1;
+        int evaluations = 0, ties = 0;
+
+        for (int i = 0; i < moveTable.getMoveCount(); i++) {
+            int moveNumber = order == null ? i : order[i];
+            int next = moveTable.getNeighbour(square, moveNumber);
+
+            if (next >= 0 && engine.isNotVisited(next)) {
+                int score = engine.getAccessibilityScore(next);
+                evaluations++;
+                if (score < minScore) {
+                    minScore = score;
+                    optimalMoveNumber = moveNumber;
+                    ties = 0;
+                }
+                else if (score == minScore) {
+                    ties++;
+                }
+            }
+        }
+
+        engine.recordSelection(evaluations, ties, 0);
+        return optimalMoveNumber;
+    }
+
+}
@@ -0,0 +1,336 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of heuristic tours keyed by board size, starting square and strategy.
+ *
+ * Tours are kept in a bounded in-memory map that evicts the least recently
+ * used tour, and optionally in a directory of files in the format of
+ * {@link BinaryTourWriter}, which outlives the process. A strategy is known
+ * by its {@linkplain MoveStrategy#canonicalName(String) canonical name}, so
+ * {@code pohl} and {@code pohl:2} share their tours. A stored file whose
+ * board, start or piece does not match the request is treated as a miss.
+ *
+ * A knight's move is still a knight's move after the board is rotated or
+ * reflected, so a tour from one start can be mapped onto every start that
+ * is equivalent under the symmetries of the board: 8 for a square board and
+ * 4 for a rectangular one. Only the tour from the lowest equivalent square
+ * is computed and stored. The tour served for another start is the image of
+ * that tour, so it is a valid tour from that start and is full whenever the
+ * computed one is, but it is not always the tour that
+ * {@link TourEngine#runTour(int, int, MoveStrategy)} would make from there,
+ * since the strategies break ties by move number.
+ *
+ * The cache is safe to use from many threads. Two threads that miss the same
+ * tour at the same time may both compute it.
+ */
+public class TourCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final String FILE_EXTENSION = ".ktr";
+    private final Map<Key, int[]> tours;
+    private final Path directory;
+    private final LongAdder hitCounter = new LongAdder();
+    private final LongAdder diskHitCounter = new LongAdder();
+    private final LongAdder missCounter = new LongAdder();
+
+    /**
+     * Construct an in-memory cache with the default capacity.
+     */
+    public TourCache() {
+        this(DEFAULT_CAPACITY, null);
+    }
+
+    /**
+     * Construct a cache with a bounded capacity and an optional disk store.
+     *
+     * @param capacity the maximum number of tours kept in memory
+     * @param directory the directory where tours are stored, or {@code null}
+     *                  to keep tours in memory only
+     */
+    public TourCache(int capacity, Path directory) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        this.tours = new LinkedHashMap<Key, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.directory = directory;
+    }
+
+    /**
+     * Get the tour from a starting tile, computing it on a miss.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     * @param row the starting row of the tour
+     * @param column the starting column of the tour
+     * @param strategy the name of the strategy, as accepted by {@link MoveStrategy#forName(String)}
+     * @return the squares of the tour in the order they are visited, which
+     *         cover the whole board if the tour is full
+     */
+    public int[] getTour(int rows, int columns, int row, int column, String strategy) {
+        if (row < 0 || column < 0 || row >= rows || column >= columns) {
+            throw new IllegalArgumentException("Invalid starting tile: (" + row + ", " + column + ")");
+        }
+
+        int square = row * columns + column;
+        int canonicalSquare = square;
+        for (int symmetry = 1; symmetry < getSymmetryCount(rows, columns); symmetry++) {
+            canonicalSquare = Math.min(canonicalSquare, transform(symmetry, square, rows, columns));
+        }
+
+        Key key = new Key(rows, columns, canonicalSquare, MoveStrategy.canonicalName(strategy));
+        int[] path = lookup(key);
+        if (path == null) {
+            path = compute(key);
+        }
+
+        for (int symmetry = 0; symmetry < getSymmetryCount(rows, columns); symmetry++) {
+            if (transform(symmetry, canonicalSquare, rows, columns) == square) {
+                int[] tour = new int[path.length];
+                for (int step = 0; step < path.length; step++) {
+                    tour[step] = transform(symmetry, path[step], rows, columns);
+                }
+                return tour;
+            }
+        }
+
+        throw new IllegalStateException("No symmetry maps " + canonicalSquare + " to " + square);
+    }
+
+    private int[] lookup(Key key) {
+        int[] path;
+        synchronized (tours) {
+            path = tours.get(key);
+        }
+        if (path != null) {
+            hitCounter.increment();
+            return path;
+        }
+
+        if (directory != null && Files.exists(getFile(key))) {
+            path = load(getFile(key), key);
+            if (path != null) {
+                synchronized (tours) {
+                    tours.put(key, path);
+                }
+                diskHitCounter.increment();
+            }
+        }
+
+        return path;
+    }
+
+    private int[] compute(Key key) {
+        missCounter.increment();
+
+        TourEngine engine = new TourEngine(key.rows, key.columns);
+        engine.runTour(key.square / key.columns, key.square % key.columns, MoveStrategy.forName(key.strategy));
+        int[] path = engine.getPath();
+
+        synchronized (tours) {
+            tours.put(key, path);
+        }
+        if (directory != null) {
+            store(getFile(key), engine);
+        }
+
+        return path;
+    }
+
+    private Path getFile(Key key) {
+        return directory.resolve(key.rows + "x" + key.columns + "-" + key.square + "-"
+                + key.strategy.replace(':', '_') + FILE_EXTENSION);
+    }
+
+    /**
+     * Read a stored tour, checking that it is the tour of the key.
+     *
+     * @return the path of the tour, or {@code null} if the file holds a tour
+     *         of another board, start or piece, which is then computed again
+     */
+    private static int[] load(Path file, Key key) {
+        try (TourReader reader = new TourReader(file)) {
+            boolean sameBoard = reader.getRows() == key.rows && reader.getColumns() == key.columns;
+            if (!sameBoard || !reader.getMoveSet().equals(MoveSet.KNIGHT)
+                    || reader.getTileCounter() > (long) key.rows * key.columns
+                    || reader.getStartRow() * key.columns + reader.getStartColumn() != key.square) {
+                return null;
+            }
+
+            int[] path = new int[Math.toIntExact(reader.getTileCounter())];
+            int[] stepCounter = new int[1];
+            int columns = reader.getColumns();
+            reader.replay((row, column) -> path[stepCounter[0]++] = row * columns + column);
+            return path;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load tour " + file, e);
+        }
+    }
+
+    /**
+     * Write a tour to a temporary file first, so that a reader never sees half a tour.
+     */
+    private static void store(Path file, TourEngine engine) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (OutputStream output = Files.newOutputStream(temporary);
+                 TourSink sink = new BinaryTourWriter(output)) {
+                engine.writeTour(sink);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store tour " + file, e);
+        }
+    }
+
+    /**
+     * Get the number of symmetries of a board.
+     *
+     * @return 8 for a square board, 4 for a rectangular one
+     */
+    public static int getSymmetryCount(int rows, int columns) {
+        return rows == columns ? 8 : 4;
+    }
+
+    /**
+     * Map a square through a symmetry of the board.
+     *
+     * Symmetries 0 to 3 are the identity, the two reflections along the axes
+     * and the half turn, which every board has. Symmetries 4 to 7 are the
+     * quarter turns and the diagonal reflections of a square board.
+     *
+     * @param symmetry a number below {@link #getSymmetryCount(int, int)}
+     * @param square the square to map
+     * @return the image of the square
+     */
+    public static int transform(int symmetry, int square, int rows, int columns) {
+        int row = square / columns, column = square % columns;
+        int lastRow = rows - 1, lastColumn = columns - 1;
+
+        switch (symmetry) {
+            case 0: return square;
+            case 1: return (lastRow - row) * columns + column;
+            case 2: return row * columns + (lastColumn - column);
+            case 3: return (lastRow - row) * columns + (lastColumn - column);
+            case 4: return column * columns + row;
+            case 5: return column * columns + (lastColumn - row);
+            case 6: return (lastRow - column) * columns + row;
+            case 7: return (lastRow - column) * columns + (lastColumn - row);
+            default: throw new IllegalArgumentException("Invalid symmetry: " + symmetry);
+        }
+    }
+
+    /**
+     * Get the number of tours served from memory.
+     */
+    public long getHitCounter() {
+        return hitCounter.sum();
+    }
+
+    /**
+     * Get the number of tours loaded from the disk store.
+     */
+    public long getDiskHitCounter() {
+        return diskHitCounter.sum();
+    }
+
+    /**
+     * Get the number of tours that had to be computed.
+     */
+    public long getMissCounter() {
+        return missCounter.sum();
+    }
+
+    /**
+     * Get the share of requests served without computing a tour, between 0 and 1.
+     */
+    public double getHitRate() {
+        long hits = getHitCounter() + getDiskHitCounter();
+        long requests = hits + getMissCounter();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * Get the number of tours kept in memory.
+     */
+    public int size() {
+        synchronized (tours) {
+            return tours.size();
+        }
+    }
+
+    /**
+     * Identity of a computed tour.
+     */
+    private static final class Key {
+        private final int rows;
+        private final int columns;
+        private final int square;
+        private final String strategy;
+
+        Key(int rows, int columns, int square, String strategy) {
+            this.rows = rows;
+            this.columns = columns;
+            this.square = square;
+            this.strategy = strategy;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) other;
+            return rows == key.rows && columns == key.columns && square == key.square && strategy.equals(key.strategy);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(rows, columns, square, strategy);
+        }
+    }
+
+    /**
+     * Request the tour from every starting square twice and print the statistics.
+     *
+     * Usage: {@code java TourCache [rows] [columns] [strategy] [directory]}
+     */
+    public static void main(String[] args) {
+        int rows = args.length >= 1 ? Integer.parseInt(args[0]) : TourEngine.DEFAULT_SIZE;
+        int columns = args.length >= 2 ? Integer.parseInt(args[1]) : rows;
+        String strategy = args.length >= 3 ? args[2] : "optimized";
+        Path directory = args.length >= 4 ? Path.of(args[3]) : null;
+
+        TourCache cache = new TourCache(DEFAULT_CAPACITY, directory);
+        int fullTourCounter = 0;
+        long startTime = System.nanoTime();
+        for (int round = 0; round < 2; round++) {
+            for (int square = 0; square < rows * columns; square++) {
+                if (cache.getTour(rows, columns, square / columns, square % columns, strategy).length == rows * columns) {
+                    fullTourCounter++;
+                }
+            }
+        }
+
+        System.out.printf("Full tours: %d/%d in %.3f ms%n", fullTourCounter, 2 * rows * columns,
+                (System.nanoTime() - startTime) / 1e6);
+        System.out.printf("Hits: %d, disk hits: %d, misses: %d, hit rate: %.1f%%%n", cache.getHitCounter(),
+                cache.getDiskHitCounter(), cache.getMissCounter(), cache.getHitRate() * 100);
+    }
+
+}
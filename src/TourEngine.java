@@ -0,0 +1,612 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Headless engine for making a knight's tour of a board.
+ *
+ * The engine keeps the visited state of every tile in a primitive array,
+ * so a tour can be made without any Swing component. A {@link Board}
+ * drives an engine and only renders its state.
+ *
+ * Moves are read from a precomputed {@link MoveTable}, and the engine keeps
+ * the number of unvisited neighbours of every square up to date as the
+ * knight moves. The accessibility score of a tile is therefore a single
+ * array read, and choosing a move costs one of them per move of the piece:
+ * eight for a knight, or as many as the {@link MoveSet} of the table has.
+ *
+ * Moves can be undone and redone one at a time in constant time. An undone
+ * move goes onto a redo stack, which is cleared by the next new move, so
+ * the state of a tour is its path and its redo stack. A {@link TourSnapshot}
+ * stores both, so a tour can be resumed later.
+ */
+public class TourEngine {
+    public static final int DEFAULT_SIZE = 8;
+    private final MoveTable moveTable;
+    private final int[] neighbours;
+    private final int moveCount;
+    private final int columns;
+    private final int openSquareCount;
+    private final int[] visitOrder;
+    private final int[] path;
+    private final int[] degrees;
+    private final int[] redoSquares;
+    private int visitedTileCounter;
+    private int redoCounter;
+    private int currentSquare = -1;
+    private TourMetrics metrics;
+
+    /**
+     * Construct an engine for a standard 8x8 board.
+     */
+    public TourEngine() {
+        this(DEFAULT_SIZE, DEFAULT_SIZE);
+    }
+
+    /**
+     * Construct an engine for a rectangular board.
+     *
+     * The visited state is stored in a flat array indexed by
+     * {@code row * columns + column}, so memory grows linearly
+     * with the number of tiles.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     */
+    public TourEngine(int rows, int columns) {
+        this(new MoveTable(rows, columns));
+    }
+
+    /**
+     * Construct an engine on top of an existing move table.
+     *
+     * @param moveTable the precomputed moves of the board
+     */
+    public TourEngine(MoveTable moveTable) {
+        this.moveTable = moveTable;
+        this.neighbours = moveTable.getNeighbours();
+        this.moveCount = moveTable.getMoveCount();
+        this.columns = moveTable.getColumns();
+        this.openSquareCount = moveTable.getOpenSquareCount();
+        this.visitOrder = new int[moveTable.getSquareCount()];
+        this.path = new int[moveTable.getSquareCount()];
+        this.degrees = moveTable.getDegrees().clone();
+        this.redoSquares = new int[moveTable.getSquareCount()];
+    }
+
+    /**
+     * Get the move table used by the engine.
+     */
+    public MoveTable getMoveTable() {
+        return moveTable;
+    }
+
+    /**
+     * Record the work of the engine, or stop recording it.
+     *
+     * @param metrics the metrics to update, or {@code null} to record nothing
+     */
+    public void setMetrics(TourMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get the metrics updated by the engine, or {@code null} if none are recorded.
+     */
+    public TourMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the number of rows of the board.
+     */
+    public int getRows() {
+        return moveTable.getRows();
+    }
+
+    /**
+     * Get the number of columns of the board.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Reset the engine to an empty board.
+     */
+    public void reset() {
+        Arrays.fill(visitOrder, 0);
+        System.arraycopy(moveTable.getDegrees(), 0, degrees, 0, degrees.length);
+
+        visitedTileCounter = 0;
+        redoCounter = 0;
+        currentSquare = -1;
+    }
+
+    /**
+     * Check if a tile is inside the board.
+     *
+     * @param row the row where the tile is located
+     * @param column the column where the tile is located
+     * @return {@code true} if the tile is located inside
+     *          the board. Otherwise, {@code false}.
+     */
+    public boolean isWithinBound(int row, int column) {
+        return (row >= 0 && column >= 0) && (row < moveTable.getRows() && column < columns);
+    }
+
+    /**
+     * Check if a tile is blocked, so that no tour may visit it.
+     *
+     * @param row the row where the tile is located
+     * @param column the column where the tile is located
+     */
+    public boolean isBlocked(int row, int column) {
+        return moveTable.isBlocked(row * columns + column);
+    }
+
+    /**
+     * Check if a tile has been visited.
+     *
+     * @param row the row where the tile is located
+     * @param column the column where the tile is located
+     * @return {@code true} if the tile can be visited.
+     *          Otherwise, {@code false}
+     */
+    public boolean isNotVisited(int row, int column) {
+        return visitOrder[row * columns + column] == 0;
+    }
+
+    /**
+     * Check if a square has been visited.
+     *
+     * @param square the square index of the tile
+     * @return {@code true} if the tile can be visited.
+     *          Otherwise, {@code false}
+     */
+    public boolean isNotVisited(int square) {
+        return visitOrder[square] == 0;
+    }
+
+    /**
+     * Get the accessibility score of a square, i.e. its number of unvisited neighbours.
+     *
+     * @param square the square index of the tile
+     * @return the number of onward moves from the tile
+     */
+    public int getAccessibilityScore(int square) {
+        return degrees[square];
+    }
+
+    /**
+     * Get the order in which a tile was visited.
+     *
+     * @param row the row where the tile is located
+     * @param column the column where the tile is located
+     * @return the 1-based position of the tile in the tour,
+     *         or 0 if it has not been visited
+     */
+    public int getVisitOrder(int row, int column) {
+        return visitOrder[row * columns + column];
+    }
+
+    /**
+     * Get the number of tiles visited so far.
+     */
+    public int getVisitedTileCounter() {
+        return visitedTileCounter;
+    }
+
+    /**
+     * Check if every open tile of the board has been visited.
+     */
+    public boolean isFullTour() {
+        return visitedTileCounter >= openSquareCount;
+    }
+
+    /**
+     * Get the squares visited so far, in the order they were visited.
+     *
+     * @return a copy of the path of the knight
+     */
+    public int[] getPath() {
+        return Arrays.copyOf(path, visitedTileCounter);
+    }
+
+    /**
+     * Write the tiles visited so far to a sink, in the order they were visited.
+     *
+     * @param sink the receiver of the tiles, which is started but not closed
+     * @throws IOException if the sink fails to write a tile
+     */
+    public void writeTour(TourSink sink) throws IOException {
+        sink.begin(moveTable.getRows(), columns, moveTable.getMoveSet());
+        for (int step = 0; step < visitedTileCounter; step++) {
+            sink.visit(path[step] / columns, path[step] % columns);
+        }
+    }
+
+    /**
+     * Get the square where the tour started, or -1 if it has not started.
+     */
+    public int getStartSquare() {
+        return visitedTileCounter > 0 ? path[0] : -1;
+    }
+
+    /**
+     * Get the square where the knight is currently located.
+     */
+    public int getCurrentSquare() {
+        return currentSquare;
+    }
+
+    /**
+     * Get the row where the knight is currently located.
+     */
+    public int getCurrentRow() {
+        return currentSquare < 0 ? -1 : currentSquare / columns;
+    }
+
+    /**
+     * Get the column where the knight is currently located.
+     */
+    public int getCurrentColumn() {
+        return currentSquare < 0 ? -1 : currentSquare % columns;
+    }
+
+    /**
+     * Identify a square as already visited and place the knight on it.
+     *
+     * Every neighbour of the square loses one onward move.
+     *
+     * @param square the square where the knight is placed
+     */
+    private void markAsVisited(int square) {
+        path[visitedTileCounter] = square;
+        visitedTileCounter++;
+        visitOrder[square] = visitedTileCounter;
+        currentSquare = square;
+
+        int offset = square * moveCount;
+        for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+            int neighbour = neighbours[offset + moveNumber];
+            if (neighbour >= 0) {
+                degrees[neighbour]--;
+            }
+        }
+    }
+
+    /**
+     * Move the knight to a neighbour without checking the move.
+     *
+     * Together with {@link #retreat()}, this lets a {@link MoveStrategy}
+     * try a move and look ahead from there.
+     *
+     * @param square an unvisited neighbour of the current square
+     */
+    void advance(int square) {
+        markAsVisited(square);
+    }
+
+    /**
+     * Take back the last move, giving every neighbour of the square back its onward move.
+     */
+    void retreat() {
+        visitedTileCounter--;
+        int square = path[visitedTileCounter];
+        visitOrder[square] = 0;
+        currentSquare = visitedTileCounter > 0 ? path[visitedTileCounter - 1] : -1;
+
+        int offset = square * moveCount;
+        for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+            int neighbour = neighbours[offset + moveNumber];
+            if (neighbour >= 0) {
+                degrees[neighbour]++;
+            }
+        }
+    }
+
+    /**
+     * Take back the last move and put it onto the redo stack.
+     *
+     * Undoing the first tile leaves an empty board, which can be redone too.
+     *
+     * @return {@code true} if a move was undone, or {@code false} if the board is empty
+     */
+    public boolean undo() {
+        if (visitedTileCounter == 0) {
+            return false;
+        }
+
+        redoSquares[redoCounter++] = path[visitedTileCounter - 1];
+        retreat();
+        return true;
+    }
+
+    /**
+     * Make the last undone move again.
+     *
+     * @return {@code true} if a move was redone, or {@code false} if the redo stack is empty
+     */
+    public boolean redo() {
+        if (redoCounter == 0) {
+            return false;
+        }
+
+        markAsVisited(redoSquares[--redoCounter]);
+        return true;
+    }
+
+    /**
+     * Check if there is a move to undo.
+     */
+    public boolean canUndo() {
+        return visitedTileCounter > 0;
+    }
+
+    /**
+     * Check if there is an undone move to redo.
+     */
+    public boolean canRedo() {
+        return redoCounter > 0;
+    }
+
+    /**
+     * Get the squares that {@link #redo()} would visit, in the order it would visit them.
+     *
+     * @return a copy of the redo stack, from its top
+     */
+    public int[] getRedoPath() {
+        int[] redoPath = new int[redoCounter];
+        for (int step = 0; step < redoCounter; step++) {
+            redoPath[step] = redoSquares[redoCounter - 1 - step];
+        }
+
+        return redoPath;
+    }
+
+    /**
+     * Replace the tour with a saved path and redo stack.
+     *
+     * The path is replayed move by move, so the degrees end up as if the
+     * moves had been made, and the redo path is replayed and undone again.
+     *
+     * @param visitedPath the squares of the tour, in the order they were visited
+     * @param redoPath the squares that {@link #redo()} visits next, as from {@link #getRedoPath()}
+     * @throws IllegalArgumentException if a square is not a move away from the one before
+     */
+    public void restore(int[] visitedPath, int[] redoPath) {
+        reset();
+
+        int length = visitedPath.length + redoPath.length;
+        for (int step = 0; step < length; step++) {
+            int square = step < visitedPath.length ? visitedPath[step] : redoPath[step - visitedPath.length];
+            if (square < 0 || square >= visitOrder.length
+                    || !(step == 0 ? start(square / columns, square % columns) : moveTo(square / columns, square % columns))) {
+                reset();
+                throw new IllegalArgumentException("Invalid move at position " + step + ": " + square);
+            }
+        }
+        for (int step = 0; step < redoPath.length; step++) {
+            undo();
+        }
+    }
+
+    /**
+     * Place the knight on the first tile of a tour.
+     *
+     * @param row the starting row of the tour
+     * @param column the starting column of the tour
+     * @return {@code true} if the tile is an open tile inside the board. Otherwise, {@code false}.
+     */
+    public boolean start(int row, int column) {
+        if (visitedTileCounter == 0 && isWithinBound(row, column) && !moveTable.isBlocked(row * columns + column)) {
+            redoCounter = 0;
+            markAsVisited(row * columns + column);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Move the knight to a specified tile.
+     *
+     * @param row the row to which the knight moves
+     * @param column the column to which the knight moves
+     * @return {@code true} if the move is one of the piece's moves to an
+     *         unvisited tile inside the board. Otherwise, {@code false}.
+     */
+    public boolean moveTo(int row, int column) {
+        if (visitedTileCounter == 0 || !isWithinBound(row, column) || !isNotVisited(row, column)) {
+            return false;
+        }
+
+        int square = row * columns + column;
+        int offset = currentSquare * moveCount;
+        for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+            if (neighbours[offset + moveNumber] == square) {
+                redoCounter = 0;
+                markAsVisited(square);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the minimum accessibility score among the tiles reachable from a square.
+     *
+     * @param square the square from which the next destinations are read
+     * @return the lowest accessibility score among the tiles
+     */
+    public int getMinAccessibilityScore(int square) {
+        int minScore = moveCount;
+
+        int offset = square * moveCount;
+        for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+            int next = neighbours[offset + moveNumber];
+
+            if (next >= 0 && visitOrder[next] == 0) {
+                minScore = Math.min(minScore, degrees[next]);
+            }
+        }
+
+        return minScore;
+    }
+
+    /**
+     * Get the optimal move number from the knight's current position.
+     *
+     * Firstly, the next possible destinations are read from the move table.
+     * Then, the live accessibility score of each unvisited destination is
+     * compared. If optimization mode is on, look ahead to those squares
+     * reachable from "tied" squares to decide on the best one based
+     * on their next minimum accessibility score.
+     *
+     * @param optimizedTiedSquares turn on/off optimization mode when "tied" squares
+     *                             are encountered
+     * @return the optimal move number that a knight can make,
+     *         or -1 if the knight is out of valid moves
+     */
+    public int getOptimalMoveNumber(boolean optimizedTiedSquares) {
+        int minScore = moveCount, optimalMoveNumber = -1;
+        int evaluations = 0, ties = 0, lookaheads = 0;
+
+        int offset = currentSquare * moveCount;
+        for (int moveNumber = 0; moveNumber < moveCount; moveNumber++) {
+            int next = neighbours[offset + moveNumber];
+
+            if (next >= 0 && visitOrder[next] == 0) {
+                int score = degrees[next];
+                evaluations++;
+                if (score < minScore) {
+                    minScore = score;
+                    optimalMoveNumber = moveNumber;
+                    ties = 0;
+                }
+                else if (score == minScore) {
+                    ties++;
+
+                    if (optimizedTiedSquares) {
+                        int optimal = neighbours[offset + optimalMoveNumber];
+                        lookaheads += 2;
+                        if (getMinAccessibilityScore(next) < getMinAccessibilityScore(optimal)) {
+                            optimalMoveNumber = moveNumber;
+                        }
+                    }
+                }
+            }
+        }
+
+        recordSelection(evaluations, ties, lookaheads);
+        return optimalMoveNumber;
+    }
+
+    /**
+     * Record the work done by a strategy to choose one move, if metrics are on.
+     *
+     * @param evaluations the number of accessibility scores compared
+     * @param ties the number of squares that tied with the chosen one
+     * @param lookaheads the number of squares looked ahead from to break ties
+     */
+    void recordSelection(int evaluations, int ties, int lookaheads) {
+        if (metrics != null) {
+            metrics.recordSelection(evaluations, ties, lookaheads);
+        }
+    }
+
+    /**
+     * Move the knight based on the heuristic approach.
+     *
+     * @param optimizedTiedSquares turn on/off optimization mode when "tied" squares
+     *                             are encountered
+     * @return the move number made by the knight, or -1 if the knight
+     *         is out of valid moves
+     */
+    public int moveKnight(boolean optimizedTiedSquares) {
+        return moveKnight(WarnsdorffStrategy.of(optimizedTiedSquares));
+    }
+
+    /**
+     * Move the knight to the tile chosen by a strategy.
+     *
+     * @param strategy the rule that chooses the next move
+     * @return the move number made by the knight, or -1 if the knight
+     *         is out of valid moves
+     */
+    public int moveKnight(MoveStrategy strategy) {
+        int optimalMoveNumber = strategy.selectMove(this);
+
+        if (optimalMoveNumber > -1) {
+            redoCounter = 0;
+            markAsVisited(neighbours[currentSquare * moveCount + optimalMoveNumber]);
+        }
+        if (metrics != null) {
+            if (optimalMoveNumber > -1) {
+                metrics.recordMove();
+            }
+            else if (!isFullTour()) {
+                metrics.recordDeadEnd();
+            }
+        }
+
+        return optimalMoveNumber;
+    }
+
+    /**
+     * Make a whole tour of an empty board using the heuristic approach.
+     *
+     * @param initialRow the starting row of the tour
+     * @param initialColumn the starting column of the tour
+     * @param optimized turn on/off optimization mode
+     * @return {@code true} if all tiles have been visited. Otherwise, {@code false}.
+     */
+    public boolean runTour(int initialRow, int initialColumn, boolean optimized) {
+        return runTour(initialRow, initialColumn, WarnsdorffStrategy.of(optimized));
+    }
+
+    /**
+     * Make a whole tour of an empty board, choosing every move with a strategy.
+     *
+     * @param initialRow the starting row of the tour
+     * @param initialColumn the starting column of the tour
+     * @param strategy the rule that chooses every move
+     * @return {@code true} if all tiles have been visited. Otherwise, {@code false}.
+     */
+    public boolean runTour(int initialRow, int initialColumn, MoveStrategy strategy) {
+        long startTime = metrics != null ? System.nanoTime() : 0;
+        reset();
+        if (!start(initialRow, initialColumn)) {
+            return false;
+        }
+
+        continueTour(strategy, Long.MAX_VALUE);
+
+        if (metrics != null) {
+            metrics.recordTour(getRows(), columns, path[0], System.nanoTime() - startTime, isFullTour());
+        }
+
+        return isFullTour();
+    }
+
+    /**
+     * Keep moving the knight from where it stands, so a tour can be made in
+     * parts and saved in between.
+     *
+     * @param strategy the rule that chooses every move
+     * @param moveLimit the maximum number of moves to make
+     * @return the number of moves made, which is below the limit
+     *         only if the tour is completed or the knight is stuck
+     */
+    public long continueTour(MoveStrategy strategy, long moveLimit) {
+        long moveCounter = 0;
+        while (moveCounter < moveLimit && !isFullTour() && moveKnight(strategy) > -1) {
+            // Keep moving until the tour is completed or the knight is stuck
+            moveCounter++;
+        }
+
+        return moveCounter;
+    }
+
+}
@@ -0,0 +1,524 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Exhaustive enumeration and counting of the knight's tours of a small board.
+ *
+ * Boards of at most 64 tiles are searched on bitboards, as in a
+ * {@link BitboardEngine}. A branch is cut as soon as an unvisited tile next
+ * to the knight loses its last way in.
+ *
+ * Open tours are counted with a transposition cache keyed on the current
+ * square and the visited set: the number of ways to finish a tour only
+ * depends on those two, so a state that is reached by different paths is
+ * counted once. Only states with 16 to 24 remaining tiles are cached: with
+ * more, a state is rarely reached twice, and with fewer, finishing the
+ * tour is cheaper than a lookup. The cache is sized to the board, up to
+ * 32 MB per thread, and holds two states per slot; a new state takes the
+ * place of the one with more visited tiles, whose subtree is smaller.
+ *
+ * Closed tours are counted by meeting in the middle. Every closed tour passes
+ * through square 0, so it splits into two paths from square 0 of
+ * {@code n / 2 + 1} tiles that end on the same square and share no other
+ * tile. The paths are grouped by their end and tiles, one layer at a time,
+ * and every group is joined with the group that covers the rest of the
+ * board. This is practical up to about 6x6; the 8x8 board has over
+ * 13 trillion closed tours, and its half tours do not fit in memory.
+ *
+ * The work is split across cores by handing the subtree below every short
+ * prefix of a tour to a fork/join pool. Enumerated tours are streamed to a
+ * callback, so they never have to be kept in memory.
+ */
+public class TourEnumerator {
+    public static final int SPLIT_DEPTH = 5;
+    private static final int MIN_CACHED_REMAINING = 16;
+    private static final int MAX_CACHED_REMAINING = 24;
+    private static final int MIN_CACHE_BITS = 10;
+    private static final int MAX_CACHE_BITS = 20;
+    private static final int SQUARE_BITS = 6;
+    private static final long SQUARE_MASK = (1L << SQUARE_BITS) - 1;
+    private static final long MAX_CACHED_COUNT = Long.MAX_VALUE >>> SQUARE_BITS;
+    private final MoveTable moveTable;
+    private final int squareCount;
+    private final long[] attacks;
+    private final long fullMask;
+    private final int cacheBits;
+    private final int threads;
+
+    /**
+     * Construct an enumerator that uses every available core.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     */
+    public TourEnumerator(int rows, int columns) {
+        this(new MoveTable(rows, columns), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct an enumerator on top of an existing move table.
+     *
+     * @param moveTable the precomputed moves of a board with at most 64 tiles and no obstacles
+     * @param threads the number of worker threads
+     */
+    public TourEnumerator(MoveTable moveTable, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        if (moveTable.hasObstacles()) {
+            throw new IllegalArgumentException("Tours can only be enumerated on a board without obstacles");
+        }
+
+        BitboardEngine engine = new BitboardEngine(moveTable);
+        this.moveTable = moveTable;
+        this.squareCount = moveTable.getSquareCount();
+        this.attacks = new long[squareCount];
+        for (int square = 0; square < squareCount; square++) {
+            attacks[square] = engine.getAttacks(square);
+        }
+        this.fullMask = squareCount == Long.SIZE ? -1L : (1L << squareCount) - 1;
+        this.cacheBits = Math.max(MIN_CACHE_BITS, Math.min(MAX_CACHE_BITS, squareCount - MIN_CACHED_REMAINING));
+        this.threads = threads;
+    }
+
+    /**
+     * Get the move table used by the enumerator.
+     */
+    public MoveTable getMoveTable() {
+        return moveTable;
+    }
+
+    /**
+     * Count the open tours from a starting square.
+     *
+     * @param initialSquare the starting square of the tours
+     * @return the number of tours that visit every tile once
+     */
+    public long countOpenTours(int initialSquare) {
+        return forEachPrefix(initialSquare, false, (search, prefix) ->
+                search.count(prefix[prefix.length - 1], toMask(prefix), prefix.length));
+    }
+
+    /**
+     * Count the open tours from every starting square.
+     *
+     * A tour and its reverse start from different squares, so both are counted.
+     *
+     * @return the number of directed open tours of the board
+     */
+    public long countOpenTours() {
+        long total = 0;
+        for (int square = 0; square < squareCount; square++) {
+            total += countOpenTours(square);
+        }
+
+        return total;
+    }
+
+    /**
+     * Enumerate the open tours from a starting square.
+     *
+     * The callback receives the squares of every tour in the order they are
+     * visited. It is called from the worker threads, possibly at the same time,
+     * and the array is reused once the callback returns.
+     *
+     * @param initialSquare the starting square of the tours
+     * @param consumer the receiver of every tour
+     * @return the number of tours
+     */
+    public long enumerateOpenTours(int initialSquare, Consumer<int[]> consumer) {
+        return forEachPrefix(initialSquare, false, (search, prefix) -> search.enumerate(prefix, false, consumer));
+    }
+
+    /**
+     * Enumerate the closed tours of the board.
+     *
+     * Every closed tour is reported once, starting from square 0 and in the
+     * direction in which the second square is lower than the last one. The
+     * callback is called as in {@link #enumerateOpenTours(int, Consumer)}.
+     *
+     * @param consumer the receiver of every tour
+     * @return the number of undirected closed tours
+     */
+    public long enumerateClosedTours(Consumer<int[]> consumer) {
+        if (squareCount % 2 != 0) {
+            return 0;
+        }
+
+        return forEachPrefix(0, true, (search, prefix) -> search.enumerate(prefix, true, consumer));
+    }
+
+    /**
+     * Count the closed tours of the board by meeting in the middle.
+     *
+     * @return the number of undirected closed tours
+     */
+    public long countClosedTours() {
+        if (squareCount % 2 != 0 || squareCount < 4) {
+            return 0;
+        }
+
+        int halfLength = squareCount / 2 + 1;
+        PathTable layer = new PathTable();
+        layer.add(1L, 0, 1);
+        for (int length = 2; length <= halfLength; length++) {
+            PathTable nextLayer = new PathTable();
+            for (int slot = 0; slot < layer.capacity(); slot++) {
+                long visited = layer.masks[slot];
+                if (visited == 0) {
+                    continue;
+                }
+
+                int end = layer.ends[slot];
+                long unvisited = fullMask & ~visited;
+                for (long next = attacks[end] & unvisited; next != 0; next &= next - 1) {
+                    int square = Long.numberOfTrailingZeros(next);
+                    if (canComplete(visited | 1L << square, square)) {
+                        nextLayer.add(visited | 1L << square, square, layer.counts[slot]);
+                    }
+                }
+            }
+            layer = nextLayer;
+        }
+
+        PathTable halves = layer;
+        long directed = forEachSlice(halves.capacity(), (from, to) -> {
+            long total = 0;
+            for (int slot = from; slot < to; slot++) {
+                long visited = halves.masks[slot];
+                if (visited != 0) {
+                    int end = halves.ends[slot];
+                    long rest = (fullMask & ~visited) | 1L | 1L << end;
+                    total += halves.counts[slot] * halves.get(rest, end);
+                }
+            }
+            return total;
+        });
+
+        // Each tour is counted in both directions through square 0
+        return directed / 2;
+    }
+
+    /**
+     * Check that every tile outside a half tour still has two ways in.
+     *
+     * The other half runs from square 0 to the end through the unvisited
+     * tiles, so each of them needs two neighbours among those tiles, square 0
+     * and the end.
+     */
+    private boolean canComplete(long visited, int end) {
+        long open = (fullMask & ~visited) | 1L | 1L << end;
+        for (long rest = fullMask & ~visited; rest != 0; rest &= rest - 1) {
+            long ways = attacks[Long.numberOfTrailingZeros(rest)] & open;
+            if ((ways & ways - 1) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long toMask(int[] path) {
+        long mask = 0;
+        for (int square : path) {
+            mask |= 1L << square;
+        }
+
+        return mask;
+    }
+
+    /**
+     * Work done by a worker on the subtree below a prefix.
+     */
+    private interface PrefixTask {
+        long run(Search search, int[] prefix);
+    }
+
+    /**
+     * Work done by a worker on a range of slots.
+     */
+    private interface SliceTask {
+        long run(int from, int to);
+    }
+
+    /**
+     * Collect the prefixes of {@link #SPLIT_DEPTH} tiles from a square and
+     * run a task on each of them in parallel.
+     *
+     * @return the sum of the results of the tasks
+     */
+    private long forEachPrefix(int initialSquare, boolean closedTour, PrefixTask task) {
+        if (initialSquare < 0 || initialSquare >= squareCount) {
+            throw new IllegalArgumentException("Invalid starting square: " + initialSquare);
+        }
+
+        List<int[]> prefixes = new ArrayList<>();
+        int[] prefix = new int[Math.min(SPLIT_DEPTH, squareCount)];
+        prefix[0] = initialSquare;
+        collectPrefixes(prefix, 1, 1L << initialSquare, closedTour, prefixes);
+
+        ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+        return submit(() -> prefixes.parallelStream()
+                .mapToLong(path -> task.run(searches.get(), path))
+                .sum());
+    }
+
+    private void collectPrefixes(int[] prefix, int length, long visited, boolean closedTour, List<int[]> prefixes) {
+        if (length == prefix.length) {
+            prefixes.add(prefix.clone());
+            return;
+        }
+
+        int square = prefix[length - 1];
+        for (long next = attacks[square] & fullMask & ~visited; next != 0; next &= next - 1) {
+            int nextSquare = Long.numberOfTrailingZeros(next);
+            if (!isDeadEnd(square, nextSquare, visited, closedTour ? prefix[0] : -1)) {
+                prefix[length] = nextSquare;
+                collectPrefixes(prefix, length + 1, visited | 1L << nextSquare, closedTour, prefixes);
+            }
+        }
+    }
+
+    /**
+     * Split a range of slots across the pool and run a task on each slice.
+     *
+     * @return the sum of the results of the tasks
+     */
+    private long forEachSlice(int length, SliceTask task) {
+        int sliceLength = Math.max(1, length / (threads * 4));
+        return submit(() -> IntStream.range(0, (length + sliceLength - 1) / sliceLength)
+                .parallel()
+                .mapToLong(slice -> task.run(slice * sliceLength, Math.min(length, (slice + 1) * sliceLength)))
+                .sum());
+    }
+
+    private long submit(Callable<Long> work) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(work).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while enumerating tours", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to enumerate tours", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Check if moving from a square to the next one cuts off an unvisited tile.
+     *
+     * A neighbour of the square that is left behind can only be entered from
+     * another unvisited tile or from the next square. In a closed tour, the
+     * start also needs a way back from an unvisited tile or the next square.
+     *
+     * @param start the start of a closed tour, or -1 for an open tour
+     */
+    private boolean isDeadEnd(int square, int nextSquare, long visited, int start) {
+        long remaining = fullMask & ~visited & ~(1L << nextSquare);
+        long open = remaining | 1L << nextSquare;
+
+        for (long left = attacks[square] & remaining; left != 0; left &= left - 1) {
+            if ((attacks[Long.numberOfTrailingZeros(left)] & open) == 0) {
+                return true;
+            }
+        }
+
+        return start >= 0 && remaining != 0 && (attacks[start] & open) == 0;
+    }
+
+    /**
+     * The state of one worker thread.
+     */
+    private class Search {
+        // Buckets of two entries, each a visited set and its count packed with the square
+        private final long[] cache = new long[4 << cacheBits];
+        private final int[] path = new int[squareCount];
+
+        /**
+         * Count the ways to finish an open tour.
+         *
+         * @param square the square where the knight is located
+         * @param visited the visited squares, including the current one
+         * @param length the number of visited squares
+         * @return the number of ways to visit every remaining tile
+         */
+        long count(int square, long visited, int length) {
+            if (length == squareCount) {
+                return 1;
+            }
+
+            int remaining = squareCount - length;
+            boolean cached = remaining >= MIN_CACHED_REMAINING && remaining <= MAX_CACHED_REMAINING;
+            int bucket = 0;
+            if (cached) {
+                // A single multiplication spreads the visited set well enough, and the lookup is the hot path
+                long key = (visited ^ (long) square << (Long.SIZE - SQUARE_BITS)) * 0x9e3779b97f4a7c15L;
+                bucket = (int) (key >>> (Long.SIZE - cacheBits)) << 2;
+                if (cache[bucket] == visited && (cache[bucket + 1] & SQUARE_MASK) == square) {
+                    return cache[bucket + 1] >>> SQUARE_BITS;
+                }
+                if (cache[bucket + 2] == visited && (cache[bucket + 3] & SQUARE_MASK) == square) {
+                    return cache[bucket + 3] >>> SQUARE_BITS;
+                }
+            }
+
+            long total = 0;
+            for (long next = attacks[square] & fullMask & ~visited; next != 0; next &= next - 1) {
+                int nextSquare = Long.numberOfTrailingZeros(next);
+                if (!isDeadEnd(square, nextSquare, visited, -1)) {
+                    total += count(nextSquare, visited | 1L << nextSquare, length + 1);
+                }
+            }
+
+            if (cached && total <= MAX_CACHED_COUNT) {
+                // Fewer visited tiles mean a larger subtree, which is worth more to keep
+                int entry = bucket + 2;
+                if (cache[bucket] == 0 || Long.bitCount(visited) <= Long.bitCount(cache[bucket])) {
+                    cache[bucket + 2] = cache[bucket];
+                    cache[bucket + 3] = cache[bucket + 1];
+                    entry = bucket;
+                }
+                cache[entry] = visited;
+                cache[entry + 1] = total << SQUARE_BITS | square;
+            }
+            return total;
+        }
+
+        /**
+         * Enumerate the tours that start with a prefix.
+         *
+         * @return the number of tours
+         */
+        long enumerate(int[] prefix, boolean closedTour, Consumer<int[]> consumer) {
+            System.arraycopy(prefix, 0, path, 0, prefix.length);
+            return enumerate(prefix.length, toMask(prefix), closedTour, consumer);
+        }
+
+        private long enumerate(int length, long visited, boolean closedTour, Consumer<int[]> consumer) {
+            int square = path[length - 1];
+            if (length == squareCount) {
+                if (closedTour && ((attacks[square] & 1L << path[0]) == 0 || path[1] > square)) {
+                    return 0;
+                }
+
+                consumer.accept(path);
+                return 1;
+            }
+
+            long total = 0;
+            for (long next = attacks[square] & fullMask & ~visited; next != 0; next &= next - 1) {
+                int nextSquare = Long.numberOfTrailingZeros(next);
+                if (!isDeadEnd(square, nextSquare, visited, closedTour ? path[0] : -1)) {
+                    path[length] = nextSquare;
+                    total += enumerate(length + 1, visited | 1L << nextSquare, closedTour, consumer);
+                }
+            }
+
+            return total;
+        }
+    }
+
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    /**
+     * Open-addressing table from a path's tiles and end to its number of paths.
+     */
+    private static class PathTable {
+        private long[] masks = new long[1 << 10];
+        private int[] ends = new int[1 << 10];
+        private long[] counts = new long[1 << 10];
+        private int size;
+
+        int capacity() {
+            return masks.length;
+        }
+
+        private int find(long mask, int end) {
+            int slot = (int) (mix(mask * 31 + end) >>> 1) & (masks.length - 1);
+            while (masks[slot] != 0 && (masks[slot] != mask || ends[slot] != end)) {
+                slot = (slot + 1) & (masks.length - 1);
+            }
+
+            return slot;
+        }
+
+        void add(long mask, int end, long count) {
+            int slot = find(mask, end);
+            if (masks[slot] == 0) {
+                masks[slot] = mask;
+                ends[slot] = end;
+                size++;
+            }
+            counts[slot] += count;
+
+            if (size * 2 > masks.length) {
+                grow();
+            }
+        }
+
+        long get(long mask, int end) {
+            int slot = find(mask, end);
+            return masks[slot] == 0 ? 0 : counts[slot];
+        }
+
+        private void grow() {
+            long[] oldMasks = masks, oldCounts = counts;
+            int[] oldEnds = ends;
+            masks = new long[oldMasks.length * 2];
+            ends = new int[oldMasks.length * 2];
+            counts = new long[oldMasks.length * 2];
+
+            for (int slot = 0; slot < oldMasks.length; slot++) {
+                if (oldMasks[slot] != 0) {
+                    int newSlot = find(oldMasks[slot], oldEnds[slot]);
+                    masks[newSlot] = oldMasks[slot];
+                    ends[newSlot] = oldEnds[slot];
+                    counts[newSlot] = oldCounts[slot];
+                }
+            }
+        }
+    }
+
+    /**
+     * Count the tours of a board and print the counts.
+     *
+     * Usage: {@code java TourEnumerator [rows] [columns] [open|closed] [threads]}
+     */
+    public static void main(String[] args) {
+        int rows = args.length >= 1 ? Integer.parseInt(args[0]) : 5;
+        int columns = args.length >= 2 ? Integer.parseInt(args[1]) : rows;
+        boolean closed = args.length >= 3 && args[2].equals("closed");
+        int threads = args.length >= 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        TourEnumerator enumerator = new TourEnumerator(new MoveTable(rows, columns), threads);
+        long startTime = System.nanoTime();
+        if (closed) {
+            System.out.printf("Closed tours: %d%n", enumerator.countClosedTours());
+        }
+        else {
+            long total = 0;
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    long count = enumerator.countOpenTours(row * columns + column);
+                    total += count;
+                    System.out.printf("%10d", count);
+                }
+                System.out.println();
+            }
+            System.out.printf("Open tours: %d%n", total);
+        }
+        System.out.printf("Counted in %.3f ms on %d threads%n", (System.nanoTime() - startTime) / 1e6, threads);
+    }
+
+}
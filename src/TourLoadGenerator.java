@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for a {@link TourServer} on localhost.
+ *
+ * A number of clients send tour requests back to back, each from a random
+ * starting tile, and time every request from sending it to reading the last
+ * byte of the response. The report shows the requests per second and the
+ * latency percentiles, and the batching of the service if it runs in the
+ * same process.
+ */
+public class TourLoadGenerator {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final URI baseUri;
+
+    /**
+     * Construct a load generator for a service on localhost.
+     *
+     * @param port the port of the service
+     */
+    public TourLoadGenerator(int port) {
+        this.baseUri = URI.create("http://localhost:" + port + "/tour");
+    }
+
+    /**
+     * Send requests from concurrent clients until each has sent its share.
+     *
+     * @param clients the number of concurrent clients
+     * @param requestsPerClient the number of requests sent by every client
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     * @param strategy the name of the strategy, as accepted by {@link MoveStrategy#forName(String)}
+     * @return the timings of the requests
+     */
+    public BatchRunner.Report run(int clients, int requestsPerClient, int rows, int columns, String strategy) {
+        if (clients <= 0 || requestsPerClient <= 0) {
+            throw new IllegalArgumentException("Invalid load: " + clients + " clients, " + requestsPerClient + " requests");
+        }
+
+        long[] latencies = new long[clients * requestsPerClient];
+        int[] tileCounters = new int[latencies.length];
+        AtomicLong errorCounter = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+
+        long startTime = System.nanoTime();
+        try {
+            Future<?>[] futures = new Future<?>[clients];
+            for (int clientIndex = 0; clientIndex < clients; clientIndex++) {
+                int offset = clientIndex * requestsPerClient;
+                SplittableRandom random = new SplittableRandom(clientIndex);
+                futures[clientIndex] = executor.submit(() -> {
+                    for (int i = offset; i < offset + requestsPerClient; i++) {
+                        int square = random.nextInt(rows * columns);
+                        long requestStartTime = System.nanoTime();
+                        tileCounters[i] = request(rows, columns, square / columns, square % columns, strategy);
+                        latencies[i] = System.nanoTime() - requestStartTime;
+                        if (tileCounters[i] < 0) {
+                            errorCounter.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sending requests", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to send requests", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        if (errorCounter.get() > 0) {
+            System.err.println("Failed requests: " + errorCounter.get());
+        }
+        return new BatchRunner.Report(rows * columns, latencies, tileCounters, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Request a tour and check the header and the trailer of the response.
+     *
+     * @return the number of tiles of the tour, or -1 if the request failed
+     */
+    private int request(int rows, int columns, int row, int column, String strategy) throws IOException, InterruptedException {
+        URI uri = URI.create(baseUri + "?rows=" + rows + "&columns=" + columns + "&row=" + row + "&column=" + column
+                + "&strategy=" + strategy);
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        byte[] body = response.body();
+        if (response.statusCode() != 200 || body.length < BinaryTourWriter.HEADER_LENGTH + BinaryTourWriter.TRAILER_LENGTH
+                || ByteBuffer.wrap(body).getInt() != BinaryTourWriter.MAGIC) {
+            return -1;
+        }
+
+        return (int) (ByteBuffer.wrap(body).getLong(body.length - BinaryTourWriter.TRAILER_LENGTH) + 1);
+    }
+
+    /**
+     * Put a service under load and print the report.
+     *
+     * Usage: {@code java TourLoadGenerator [port] [clients] [requestsPerClient] [rows] [columns] [strategy]}
+     *
+     * With a port of 0, a service with the default settings is started in
+     * the same process.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length >= 1 ? Integer.parseInt(args[0]) : 0;
+        int clients = args.length >= 2 ? Integer.parseInt(args[1]) : 16;
+        int requestsPerClient = args.length >= 3 ? Integer.parseInt(args[2]) : 500;
+        int rows = args.length >= 4 ? Integer.parseInt(args[3]) : TourEngine.DEFAULT_SIZE;
+        int columns = args.length >= 5 ? Integer.parseInt(args[4]) : rows;
+        String strategy = args.length >= 6 ? args[5] : "optimized";
+
+        TourServer server = null;
+        if (port == 0) {
+            server = new TourServer(0);
+            server.start();
+            port = server.getPort();
+        }
+
+        try {
+            TourLoadGenerator generator = new TourLoadGenerator(port);
+            // Warm up the service and the client before measuring
+            generator.run(clients, Math.max(1, requestsPerClient / 10), rows, columns, strategy);
+            BatchRunner.Report report = generator.run(clients, requestsPerClient, rows, columns, strategy);
+
+            System.out.printf("%dx%d board, %s strategy, %d clients of %d requests%n", rows, columns, strategy,
+                    clients, requestsPerClient);
+            System.out.printf("Throughput: %.1f requests/s in %.3f ms%n", report.getToursPerSecond(),
+                    report.getElapsedNanos() / 1e6);
+            System.out.printf("Latency: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", report.getLatencyPercentile(50) / 1e6,
+                    report.getLatencyPercentile(99) / 1e6, report.getLatencyPercentile(100) / 1e6);
+            System.out.printf("Full tours: %d/%d%n", report.getFullTourCounter(), report.getTourCounter());
+            if (server != null) {
+                System.out.printf("Service: %d batches, mean batch size %.2f, %d tours made%n", server.getBatchCounter(),
+                        server.getMeanBatchSize(), server.getTourCounter());
+            }
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+}
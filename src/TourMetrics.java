@@ -0,0 +1,439 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and timings of the tours made by {@link TourEngine}s.
+ *
+ * Metrics are opt-in: an engine only records them once
+ * {@link TourEngine#setMetrics(TourMetrics)} has been called, and an engine
+ * without metrics pays a single null check per move. One instance can be
+ * shared by engines on many threads.
+ *
+ * Besides the counters, the wall time of every tour is recorded in a
+ * histogram per board size, with one bucket per power of two nanoseconds,
+ * and summed per starting square, so the expensive board sizes and starts
+ * stand out. The metrics can be read with {@link #snapshot()} or through
+ * JMX once {@link #register(String)} has been called.
+ */
+public class TourMetrics implements TourMetricsMXBean {
+    public static final String DOMAIN = "knightstour";
+    private static final int BUCKET_COUNT = Long.SIZE;
+    private final LongAdder moveCounter = new LongAdder();
+    private final LongAdder evaluationCounter = new LongAdder();
+    private final LongAdder tieCounter = new LongAdder();
+    private final LongAdder lookaheadCounter = new LongAdder();
+    private final LongAdder deadEndCounter = new LongAdder();
+    private final Map<Long, BoardTimings> boards = new ConcurrentHashMap<>();
+
+    /**
+     * Record the work done to choose one move.
+     *
+     * @param evaluations the number of accessibility scores compared
+     * @param ties the number of squares that tied with the chosen one
+     * @param lookaheads the number of squares looked ahead from to break ties
+     */
+    void recordSelection(int evaluations, int ties, int lookaheads) {
+        evaluationCounter.add(evaluations);
+        if (ties > 0) {
+            tieCounter.add(ties);
+        }
+        if (lookaheads > 0) {
+            lookaheadCounter.add(lookaheads);
+        }
+    }
+
+    /**
+     * Record a move of the knight.
+     */
+    void recordMove() {
+        moveCounter.increment();
+    }
+
+    /**
+     * Record a knight that got stuck before the end of the tour.
+     */
+    void recordDeadEnd() {
+        deadEndCounter.increment();
+    }
+
+    /**
+     * Record the outcome and the wall time of a tour.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     * @param initialSquare the starting square of the tour
+     * @param elapsedNanos the wall time of the tour in nanoseconds
+     * @param fullTour whether every tile was visited
+     */
+    void recordTour(int rows, int columns, int initialSquare, long elapsedNanos, boolean fullTour) {
+        boards.computeIfAbsent((long) rows << 32 | columns, key -> new BoardTimings(rows, columns))
+                .record(initialSquare, elapsedNanos, fullTour);
+    }
+
+    @Override
+    public long getMoveCounter() {
+        return moveCounter.sum();
+    }
+
+    @Override
+    public long getEvaluationCounter() {
+        return evaluationCounter.sum();
+    }
+
+    @Override
+    public long getTieCounter() {
+        return tieCounter.sum();
+    }
+
+    @Override
+    public long getLookaheadCounter() {
+        return lookaheadCounter.sum();
+    }
+
+    @Override
+    public long getDeadEndCounter() {
+        return deadEndCounter.sum();
+    }
+
+    @Override
+    public long getTourCounter() {
+        long total = 0;
+        for (BoardTimings timings : boards.values()) {
+            total += timings.tourCounter.sum();
+        }
+
+        return total;
+    }
+
+    @Override
+    public long getFullTourCounter() {
+        long total = 0;
+        for (BoardTimings timings : boards.values()) {
+            total += timings.fullTourCounter.sum();
+        }
+
+        return total;
+    }
+
+    @Override
+    public String[] getBoardReports() {
+        List<BoardSnapshot> snapshots = snapshot().getBoards();
+        String[] reports = new String[snapshots.size()];
+        for (int i = 0; i < reports.length; i++) {
+            reports[i] = snapshots.get(i).toString();
+        }
+
+        return reports;
+    }
+
+    @Override
+    public void reset() {
+        moveCounter.reset();
+        evaluationCounter.reset();
+        tieCounter.reset();
+        lookaheadCounter.reset();
+        deadEndCounter.reset();
+        boards.clear();
+    }
+
+    /**
+     * Register the metrics with the platform MBean server.
+     *
+     * @param name the name that tells this instance apart from others
+     * @return the name under which the metrics are registered
+     * @throws JMException if the metrics cannot be registered
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=TourMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Take a consistent-enough copy of the metrics.
+     *
+     * Counters that are updated during the copy may be off by the moves
+     * made in the meantime.
+     */
+    public Snapshot snapshot() {
+        List<BoardSnapshot> boardSnapshots = new ArrayList<>();
+        for (BoardTimings timings : boards.values()) {
+            boardSnapshots.add(timings.snapshot());
+        }
+        boardSnapshots.sort((a, b) -> a.rows != b.rows ? Integer.compare(a.rows, b.rows) : Integer.compare(a.columns, b.columns));
+
+        return new Snapshot(getMoveCounter(), getEvaluationCounter(), getTieCounter(), getLookaheadCounter(),
+                getDeadEndCounter(), boardSnapshots);
+    }
+
+    /**
+     * Get the histogram bucket of a wall time.
+     *
+     * Bucket {@code b} holds the times from {@code 2^(b-1)} to {@code 2^b - 1} nanoseconds.
+     */
+    private static int getBucket(long nanos) {
+        return Long.SIZE - Long.numberOfLeadingZeros(Math.max(0, nanos));
+    }
+
+    /**
+     * Timings of the tours of one board size.
+     */
+    private static class BoardTimings {
+        private final int rows;
+        private final int columns;
+        private final LongAdder tourCounter = new LongAdder();
+        private final LongAdder fullTourCounter = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+        private final AtomicLongArray squareNanos;
+        private final AtomicLongArray squareTourCounters;
+
+        BoardTimings(int rows, int columns) {
+            this.rows = rows;
+            this.columns = columns;
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                buckets[bucket] = new LongAdder();
+            }
+            this.squareNanos = new AtomicLongArray(rows * columns);
+            this.squareTourCounters = new AtomicLongArray(rows * columns);
+        }
+
+        void record(int initialSquare, long elapsedNanos, boolean fullTour) {
+            tourCounter.increment();
+            if (fullTour) {
+                fullTourCounter.increment();
+            }
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+            buckets[getBucket(elapsedNanos)].increment();
+            squareNanos.addAndGet(initialSquare, elapsedNanos);
+            squareTourCounters.incrementAndGet(initialSquare);
+        }
+
+        BoardSnapshot snapshot() {
+            long[] histogram = new long[BUCKET_COUNT];
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                histogram[bucket] = buckets[bucket].sum();
+            }
+
+            int slowestSquare = -1;
+            double slowestMeanNanos = 0;
+            for (int square = 0; square < squareNanos.length(); square++) {
+                long tours = squareTourCounters.get(square);
+                if (tours > 0 && (double) squareNanos.get(square) / tours > slowestMeanNanos) {
+                    slowestMeanNanos = (double) squareNanos.get(square) / tours;
+                    slowestSquare = square;
+                }
+            }
+
+            return new BoardSnapshot(rows, columns, tourCounter.sum(), fullTourCounter.sum(), totalNanos.sum(),
+                    maxNanos.get(), histogram, slowestSquare, slowestMeanNanos);
+        }
+    }
+
+    /**
+     * A copy of the metrics at one point in time.
+     */
+    public static class Snapshot {
+        private final long moveCounter;
+        private final long evaluationCounter;
+        private final long tieCounter;
+        private final long lookaheadCounter;
+        private final long deadEndCounter;
+        private final List<BoardSnapshot> boards;
+
+        Snapshot(long moveCounter, long evaluationCounter, long tieCounter, long lookaheadCounter,
+                 long deadEndCounter, List<BoardSnapshot> boards) {
+            this.moveCounter = moveCounter;
+            this.evaluationCounter = evaluationCounter;
+            this.tieCounter = tieCounter;
+            this.lookaheadCounter = lookaheadCounter;
+            this.deadEndCounter = deadEndCounter;
+            this.boards = boards;
+        }
+
+        /**
+         * Get the number of moves made by the knight.
+         */
+        public long getMoveCounter() {
+            return moveCounter;
+        }
+
+        /**
+         * Get the number of accessibility scores compared while choosing moves.
+         */
+        public long getEvaluationCounter() {
+            return evaluationCounter;
+        }
+
+        /**
+         * Get the number of times a square tied with the chosen one.
+         */
+        public long getTieCounter() {
+            return tieCounter;
+        }
+
+        /**
+         * Get the number of squares looked ahead from to break ties.
+         */
+        public long getLookaheadCounter() {
+            return lookaheadCounter;
+        }
+
+        /**
+         * Get the number of tours in which the knight got stuck before the end.
+         */
+        public long getDeadEndCounter() {
+            return deadEndCounter;
+        }
+
+        /**
+         * Get the timings of every board size, from the smallest.
+         */
+        public List<BoardSnapshot> getBoards() {
+            return boards;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder(String.format(
+                    "Moves: %d, evaluations: %d, ties: %d, lookaheads: %d, dead ends: %d",
+                    moveCounter, evaluationCounter, tieCounter, lookaheadCounter, deadEndCounter));
+            for (BoardSnapshot board : boards) {
+                report.append(System.lineSeparator()).append(board);
+            }
+
+            return report.toString();
+        }
+    }
+
+    /**
+     * The timings of the tours of one board size at one point in time.
+     */
+    public static class BoardSnapshot {
+        private final int rows;
+        private final int columns;
+        private final long tourCounter;
+        private final long fullTourCounter;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] histogram;
+        private final int slowestSquare;
+        private final double slowestMeanNanos;
+
+        BoardSnapshot(int rows, int columns, long tourCounter, long fullTourCounter, long totalNanos, long maxNanos,
+                      long[] histogram, int slowestSquare, double slowestMeanNanos) {
+            this.rows = rows;
+            this.columns = columns;
+            this.tourCounter = tourCounter;
+            this.fullTourCounter = fullTourCounter;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.histogram = histogram;
+            this.slowestSquare = slowestSquare;
+            this.slowestMeanNanos = slowestMeanNanos;
+        }
+
+        /**
+         * Get the number of rows of the board.
+         */
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * Get the number of columns of the board.
+         */
+        public int getColumns() {
+            return columns;
+        }
+
+        /**
+         * Get the number of tours made on the board.
+         */
+        public long getTourCounter() {
+            return tourCounter;
+        }
+
+        /**
+         * Get the number of tours that visited every tile.
+         */
+        public long getFullTourCounter() {
+            return fullTourCounter;
+        }
+
+        /**
+         * Get the mean wall time of a tour in nanoseconds.
+         */
+        public double getMeanNanos() {
+            return tourCounter == 0 ? 0 : (double) totalNanos / tourCounter;
+        }
+
+        /**
+         * Get the longest wall time of a tour in nanoseconds.
+         */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Get the number of tours in every bucket of the histogram.
+         *
+         * Bucket {@code b} holds the tours that took from {@code 2^(b-1)}
+         * to {@code 2^b - 1} nanoseconds.
+         */
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        /**
+         * Get an upper bound of a percentile of the wall time of a tour.
+         *
+         * @param percentile a number between 0 and 100
+         * @return the upper end of the bucket that holds the percentile, in nanoseconds
+         */
+        public long getPercentileNanos(double percentile) {
+            long rank = (long) Math.ceil(percentile / 100 * tourCounter), seen = 0;
+            for (int bucket = 0; bucket < histogram.length; bucket++) {
+                seen += histogram[bucket];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(maxNanos, bucket == 0 ? 0 : (1L << bucket) - 1);
+                }
+            }
+
+            return maxNanos;
+        }
+
+        /**
+         * Get the starting square with the longest mean wall time, or -1 if no tour was made.
+         */
+        public int getSlowestSquare() {
+            return slowestSquare;
+        }
+
+        /**
+         * Get the mean wall time of the tours from the slowest starting square in nanoseconds.
+         */
+        public double getSlowestMeanNanos() {
+            return slowestMeanNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%dx%d: %d/%d full, mean %.3f ms, p50 < %.3f ms, p99 < %.3f ms, max %.3f ms, "
+                            + "slowest start (%d, %d) at %.3f ms", rows, columns, fullTourCounter, tourCounter,
+                    getMeanNanos() / 1e6, getPercentileNanos(50) / 1e6, getPercentileNanos(99) / 1e6, maxNanos / 1e6,
+                    slowestSquare / columns, slowestSquare % columns, slowestMeanNanos / 1e6);
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+/**
+ * Management interface of {@link TourMetrics}, as seen through JMX.
+ */
+public interface TourMetricsMXBean {
+
+    /**
+     * Get the number of moves made by the knight.
+     */
+    long getMoveCounter();
+
+    /**
+     * Get the number of accessibility scores compared while choosing moves.
+     */
+    long getEvaluationCounter();
+
+    /**
+     * Get the number of times a square tied with the chosen one.
+     */
+    long getTieCounter();
+
+    /**
+     * Get the number of squares looked ahead from to break ties.
+     */
+    long getLookaheadCounter();
+
+    /**
+     * Get the number of tours in which the knight got stuck before the end.
+     */
+    long getDeadEndCounter();
+
+    /**
+     * Get the number of tours made.
+     */
+    long getTourCounter();
+
+    /**
+     * Get the number of tours that visited every tile.
+     */
+    long getFullTourCounter();
+
+    /**
+     * Get one line of timings for every board size, as in {@link TourMetrics.BoardSnapshot#toString()}.
+     */
+    String[] getBoardReports();
+
+    /**
+     * Clear every counter and timing.
+     */
+    void reset();
+
+}
@@ -0,0 +1,206 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader of tour files written by {@link BinaryTourWriter}.
+ *
+ * The packed moves are memory-mapped one window at a time, so a tour file
+ * larger than the heap, or larger than 2 GB, can be replayed with constant
+ * memory and at the speed of the disk. Files in the older {@code KTR1}
+ * format, which has no piece name, are read as knight's tours.
+ */
+public class TourReader implements Closeable {
+    private static final int KNIGHT_MAGIC = 0x4b545231;
+    private static final long WINDOW_LENGTH = 64L << 20;
+    private final FileChannel channel;
+    private final int rows;
+    private final int columns;
+    private final int startRow;
+    private final int startColumn;
+    private final MoveSet moveSet;
+    private final int headerLength;
+    private final long moveCounter;
+
+    /**
+     * Open a tour file and read its header and trailer.
+     *
+     * @param file the path of the tour file
+     * @throws IOException if the file cannot be read or is not a tour file
+     */
+    public TourReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+
+        try {
+            long size = channel.size();
+            if (size < BinaryTourWriter.HEADER_LENGTH + BinaryTourWriter.TRAILER_LENGTH) {
+                throw new IOException("Tour file is too short: " + file);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(BinaryTourWriter.HEADER_LENGTH);
+            readFully(header, 0);
+            int magic = header.getInt(0);
+            if (magic != BinaryTourWriter.MAGIC && magic != KNIGHT_MAGIC) {
+                throw new IOException("Not a tour file: " + file);
+            }
+            rows = header.getInt(4);
+            columns = header.getInt(8);
+            startRow = header.getInt(12);
+            startColumn = header.getInt(16);
+
+            if (magic == KNIGHT_MAGIC) {
+                moveSet = MoveSet.KNIGHT;
+                headerLength = BinaryTourWriter.HEADER_LENGTH;
+            }
+            else {
+                ByteBuffer nameLength = ByteBuffer.allocate(Short.BYTES);
+                readFully(nameLength, BinaryTourWriter.HEADER_LENGTH);
+                ByteBuffer name = ByteBuffer.allocate(nameLength.getShort(0) & 0xffff);
+                readFully(name, BinaryTourWriter.HEADER_LENGTH + Short.BYTES);
+                try {
+                    moveSet = MoveSet.forName(new String(name.array(), StandardCharsets.UTF_8));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Unknown piece in tour file: " + file, e);
+                }
+                headerLength = BinaryTourWriter.HEADER_LENGTH + Short.BYTES + name.capacity();
+            }
+
+            ByteBuffer trailer = ByteBuffer.allocate(BinaryTourWriter.TRAILER_LENGTH);
+            readFully(trailer, size - BinaryTourWriter.TRAILER_LENGTH);
+            moveCounter = trailer.getLong(0);
+
+            long packedLength = size - headerLength - BinaryTourWriter.TRAILER_LENGTH;
+            if (moveCounter < 0 || moveCounter > Long.MAX_VALUE / Long.SIZE
+                    || (moveCounter * moveSet.getMoveBits() + 7) / 8 != packedLength) {
+                throw new IOException("Corrupted tour file: " + file);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of tour file");
+            }
+        }
+    }
+
+    /**
+     * Get the number of rows of the board.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the number of columns of the board.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the starting row of the tour, or -1 if the tour is empty.
+     */
+    public int getStartRow() {
+        return startRow;
+    }
+
+    /**
+     * Get the starting column of the tour, or -1 if the tour is empty.
+     */
+    public int getStartColumn() {
+        return startColumn;
+    }
+
+    /**
+     * Get the moves of the piece that made the tour.
+     */
+    public MoveSet getMoveSet() {
+        return moveSet;
+    }
+
+    /**
+     * Get the number of moves made by the piece.
+     */
+    public long getMoveCounter() {
+        return moveCounter;
+    }
+
+    /**
+     * Get the number of tiles in the tour.
+     */
+    public long getTileCounter() {
+        return startRow < 0 ? 0 : moveCounter + 1;
+    }
+
+    /**
+     * Replay the tour into a sink, one tile at a time.
+     *
+     * The sink is started with {@link TourSink#begin(int, int, MoveSet)} but not closed.
+     *
+     * @param sink the receiver of the tiles of the tour
+     * @throws IOException if the file cannot be read or the sink fails
+     */
+    public void replay(TourSink sink) throws IOException {
+        sink.begin(rows, columns, moveSet);
+        if (startRow < 0) {
+            return;
+        }
+
+        int row = startRow, column = startColumn;
+        sink.visit(row, column);
+
+        long position = headerLength;
+        long end = channel.size() - BinaryTourWriter.TRAILER_LENGTH;
+        MappedByteBuffer window = null;
+        long bitBuffer = 0;
+        int bitCounter = 0;
+        int moveBits = moveSet.getMoveBits(), moveMask = (1 << moveBits) - 1;
+
+        for (long move = 0; move < moveCounter; move++) {
+            if (bitCounter < moveBits) {
+                if (window == null || !window.hasRemaining()) {
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_LENGTH, end - position));
+                    window.order(ByteOrder.LITTLE_ENDIAN);
+                    position += window.capacity();
+                }
+                // Moves are packed from the lowest bit, so four bytes read as a little-endian int keep their order
+                if (window.remaining() >= Integer.BYTES) {
+                    bitBuffer |= (window.getInt() & 0xffffffffL) << bitCounter;
+                    bitCounter += Integer.SIZE;
+                }
+                else {
+                    bitBuffer |= (window.get() & 0xffL) << bitCounter;
+                    bitCounter += Byte.SIZE;
+                }
+            }
+
+            int moveNumber = (int) bitBuffer & moveMask;
+            bitBuffer >>>= moveBits;
+            bitCounter -= moveBits;
+            if (moveNumber >= moveSet.size()) {
+                throw new IOException("Corrupted tour file: move number " + moveNumber + " at move " + move);
+            }
+
+            row += moveSet.getRowOffset(moveNumber);
+            column += moveSet.getColumnOffset(moveNumber);
+            sink.visit(row, column);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,468 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local HTTP service that makes heuristic tours for other processes.
+ *
+ * A tour is requested with {@code GET /tour?rows=8&columns=8&row=0&column=0&strategy=optimized},
+ * where every parameter is optional and defaults to the standard board, the
+ * corner tile and the optimized strategy. The tour is streamed back in the
+ * format of {@link BinaryTourWriter}, or as CSV with {@code format=csv}, and
+ * the {@code X-Full-Tour} header tells if every tile was visited.
+ * {@code GET /stats} returns the counters of the service as plain text.
+ *
+ * Requests are not solved on the HTTP threads. They are put into a queue, and
+ * a dispatcher thread takes them in batches: a batch is closed once it holds
+ * {@link #DEFAULT_BATCH_SIZE} requests or its first request has waited for
+ * the linger time. Identical requests in a batch are solved once, and the
+ * distinct tours are spread over a fork/join pool, as in {@link BatchRunner}.
+ * A worker borrows an idle engine of the board size, or builds one on the
+ * cached {@link MoveTable} of that size, and returns it to the pool of the
+ * table when its tour is done.
+ *
+ * The move tables of the most recently used board sizes are kept in a small
+ * cache, bounded by {@link #MOVE_TABLE_CACHE_SIZE} tables and by
+ * {@link #MAX_CACHED_SQUARE_COUNT} tiles in total, since the table of the
+ * largest board takes over a hundred megabytes. The engines of a size are
+ * kept with its table, so they are dropped together when the size is evicted.
+ */
+public class TourServer {
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_BATCH_SIZE = 64;
+    public static final int DEFAULT_LINGER_MILLIS = 1;
+    public static final int MAX_SQUARE_COUNT = 1 << 22;
+    public static final int MOVE_TABLE_CACHE_SIZE = 8;
+    public static final long MAX_CACHED_SQUARE_COUNT = MAX_SQUARE_COUNT;
+    private static final long RESPONSE_TIMEOUT_SECONDS = 60;
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    private final HttpServer server;
+    private final ExecutorService httpExecutor = Executors.newCachedThreadPool();
+    private final ForkJoinPool workers;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final LinkedHashMap<Long, CachedTable> moveTables = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedSquareCount;
+    private final Thread dispatcher;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final LongAdder requestCounter = new LongAdder();
+    private final LongAdder batchCounter = new LongAdder();
+    private final LongAdder batchedRequestCounter = new LongAdder();
+    private final LongAdder tourCounter = new LongAdder();
+    private volatile boolean running;
+
+    /**
+     * Construct a service with the default batching on every available core.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public TourServer(int port) throws IOException {
+        this(port, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE, DEFAULT_LINGER_MILLIS);
+    }
+
+    /**
+     * Construct a service with custom batching.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @param workers the number of threads that make tours
+     * @param batchSize the maximum number of requests in a batch
+     * @param lingerMillis the longest time that a request waits for others to join its batch
+     * @throws IOException if the port cannot be bound
+     */
+    public TourServer(int port, int workers, int batchSize, int lingerMillis) throws IOException {
+        if (workers <= 0 || batchSize <= 0 || lingerMillis < 0) {
+            throw new IllegalArgumentException("Invalid service settings: " + workers + " workers, batches of "
+                    + batchSize + ", " + lingerMillis + " ms linger");
+        }
+
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            // Otherwise Nagle's algorithm holds the body until the headers are acknowledged, about 40 ms later
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.workers = new ForkJoinPool(workers);
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.dispatcher = new Thread(this::dispatch, "tour-dispatcher");
+        this.dispatcher.setDaemon(true);
+
+        server.setExecutor(httpExecutor);
+        server.createContext("/tour", this::handleTour);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    /**
+     * Start accepting requests.
+     */
+    public void start() {
+        running = true;
+        dispatcher.start();
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests and release the threads of the service.
+     *
+     * Requests that are still queued are answered with an error.
+     */
+    public void stop() {
+        running = false;
+        server.stop(0);
+        dispatcher.interrupt();
+        workers.shutdown();
+        httpExecutor.shutdown();
+
+        for (Request request = queue.poll(); request != null; request = queue.poll()) {
+            request.tour.completeExceptionally(new IllegalStateException("The service has stopped"));
+        }
+    }
+
+    /**
+     * Get the port on which the service listens.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Get the number of tour requests received.
+     */
+    public long getRequestCounter() {
+        return requestCounter.sum();
+    }
+
+    /**
+     * Get the number of batches taken from the queue.
+     */
+    public long getBatchCounter() {
+        return batchCounter.sum();
+    }
+
+    /**
+     * Get the number of tours made, which is lower than the number of
+     * requests when identical requests share a batch.
+     */
+    public long getTourCounter() {
+        return tourCounter.sum();
+    }
+
+    /**
+     * Get the mean number of requests in a batch.
+     */
+    public double getMeanBatchSize() {
+        long batches = getBatchCounter();
+        return batches == 0 ? 0 : (double) batchedRequestCounter.sum() / batches;
+    }
+
+    private void handleTour(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Request request;
+            boolean csv;
+            try {
+                Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+                csv = parameters.getOrDefault("format", "binary").equals("csv");
+                request = parseRequest(parameters);
+            } catch (IllegalArgumentException e) {
+                sendText(exchange, 400, e.getMessage());
+                return;
+            }
+
+            if (!running) {
+                sendText(exchange, 503, "The service has stopped");
+                return;
+            }
+            requestCounter.increment();
+            queue.add(request);
+
+            int[] path;
+            try {
+                path = request.tour.get(RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sendText(exchange, 503, "Interrupted while making the tour");
+                return;
+            } catch (ExecutionException | TimeoutException e) {
+                sendText(exchange, 500, "Failed to make the tour: " + e);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", csv ? "text/csv" : "application/octet-stream");
+            exchange.getResponseHeaders().set("X-Full-Tour", Boolean.toString(path.length == request.rows * request.columns));
+            // A known length spares the client the chunked encoding
+            exchange.sendResponseHeaders(200, csv ? 0 : BinaryTourWriter.getLength(path.length));
+            try (TourSink sink = csv ? new CsvTourWriter(exchange.getResponseBody())
+                    : new BinaryTourWriter(exchange.getResponseBody())) {
+                sink.begin(request.rows, request.columns);
+                for (int square : path) {
+                    sink.visit(square / request.columns, square % request.columns);
+                }
+            }
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            sendText(exchange, 200, String.format(
+                    "requests %d%nbatches %d%ntours %d%nmean batch size %.2f%nqueued %d%ncached tables %d%n",
+                    getRequestCounter(), getBatchCounter(), getTourCounter(), getMeanBatchSize(), queue.size(),
+                    getCachedTableCounter()));
+        }
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = (text + (text.endsWith("\n") ? "" : "\n")).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), StandardCharsets.UTF_8);
+            String value = separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+            parameters.put(name, value);
+        }
+
+        return parameters;
+    }
+
+    /**
+     * Check the parameters of a tour request.
+     *
+     * @throws IllegalArgumentException if a parameter is not valid
+     */
+    private static Request parseRequest(Map<String, String> parameters) {
+        int rows = Integer.parseInt(parameters.getOrDefault("rows", Integer.toString(TourEngine.DEFAULT_SIZE)));
+        int columns = Integer.parseInt(parameters.getOrDefault("columns", Integer.toString(rows)));
+        int row = Integer.parseInt(parameters.getOrDefault("row", "0"));
+        int column = Integer.parseInt(parameters.getOrDefault("column", "0"));
+        String strategy = parameters.getOrDefault("strategy", "optimized");
+
+        if (rows <= 0 || columns <= 0 || (long) rows * columns > MAX_SQUARE_COUNT) {
+            throw new IllegalArgumentException("Invalid board size: " + rows + "x" + columns);
+        }
+        if (row < 0 || column < 0 || row >= rows || column >= columns) {
+            throw new IllegalArgumentException("Starting tile outside the board: (" + row + ", " + column + ")");
+        }
+        MoveStrategy.forName(strategy);
+
+        return new Request(rows, columns, row, column, strategy);
+    }
+
+    /**
+     * Take batches of requests from the queue until the service stops.
+     */
+    private void dispatch() {
+        List<Request> batch = new ArrayList<>(batchSize);
+
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    Request request = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (request == null) {
+                        break;
+                    }
+                    batch.add(request);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            solveBatch(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * Solve every distinct tour of a batch on the worker pool and complete the requests.
+     */
+    private void solveBatch(List<Request> batch) {
+        batchCounter.increment();
+        batchedRequestCounter.add(batch.size());
+
+        Map<Request, List<Request>> tours = new LinkedHashMap<>();
+        for (Request request : batch) {
+            tours.computeIfAbsent(request, key -> new ArrayList<>()).add(request);
+        }
+        List<List<Request>> groups = new ArrayList<>(tours.values());
+
+        workers.execute(() -> groups.parallelStream().forEach(group -> {
+            try {
+                int[] path = solve(group.get(0));
+                tourCounter.increment();
+                for (Request request : group) {
+                    request.tour.complete(path);
+                }
+            } catch (RuntimeException e) {
+                for (Request request : group) {
+                    request.tour.completeExceptionally(e);
+                }
+            }
+        }));
+    }
+
+    private int[] solve(Request request) {
+        CachedTable table = getMoveTable(request.rows, request.columns);
+        TourEngine engine = table.engines.poll();
+        if (engine == null) {
+            engine = new TourEngine(table.moveTable);
+        }
+
+        try {
+            engine.runTour(request.row, request.column, MoveStrategy.forName(request.strategy));
+            return engine.getPath();
+        } finally {
+            table.engines.offer(engine);
+        }
+    }
+
+    /**
+     * Get the move table of a board size from the cache, evicting the least
+     * recently used sizes once the cache is full.
+     *
+     * A missing table is built outside the lock, so a large board does not
+     * hold up the requests for the sizes that are already cached.
+     */
+    private CachedTable getMoveTable(int rows, int columns) {
+        long key = (long) rows << 32 | columns;
+        synchronized (moveTables) {
+            CachedTable table = moveTables.get(key);
+            if (table != null) {
+                return table;
+            }
+        }
+
+        CachedTable table = new CachedTable(new MoveTable(rows, columns));
+        synchronized (moveTables) {
+            CachedTable cached = moveTables.putIfAbsent(key, table);
+            if (cached != null) {
+                return cached;
+            }
+
+            cachedSquareCount += table.moveTable.getSquareCount();
+            Iterator<CachedTable> eldest = moveTables.values().iterator();
+            while (moveTables.size() > MOVE_TABLE_CACHE_SIZE || cachedSquareCount > MAX_CACHED_SQUARE_COUNT) {
+                CachedTable evicted = eldest.next();
+                if (evicted == table) {
+                    break;
+                }
+                cachedSquareCount -= evicted.moveTable.getSquareCount();
+                eldest.remove();
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * Get the number of board sizes whose move tables are cached.
+     */
+    public int getCachedTableCounter() {
+        synchronized (moveTables) {
+            return moveTables.size();
+        }
+    }
+
+    /**
+     * The move table of a board size, and the idle engines built on it.
+     */
+    private static final class CachedTable {
+        private final MoveTable moveTable;
+        private final Queue<TourEngine> engines = new ConcurrentLinkedQueue<>();
+
+        CachedTable(MoveTable moveTable) {
+            this.moveTable = moveTable;
+        }
+    }
+
+    /**
+     * A tour requested by a client, and the future through which it is answered.
+     *
+     * Requests are equal if they ask for the same tour, so that a batch solves it once.
+     */
+    private static final class Request {
+        private final int rows;
+        private final int columns;
+        private final int row;
+        private final int column;
+        private final String strategy;
+        private final CompletableFuture<int[]> tour = new CompletableFuture<>();
+
+        Request(int rows, int columns, int row, int column, String strategy) {
+            this.rows = rows;
+            this.columns = columns;
+            this.row = row;
+            this.column = column;
+            this.strategy = strategy;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Request)) {
+                return false;
+            }
+
+            Request request = (Request) other;
+            return rows == request.rows && columns == request.columns && row == request.row
+                    && column == request.column && strategy.equals(request.strategy);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(rows, columns, row, column, strategy);
+        }
+    }
+
+    /**
+     * Run the service until the process is stopped.
+     *
+     * Usage: {@code java TourServer [port] [workers] [batchSize] [lingerMillis]}
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length >= 1 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workers = args.length >= 2 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int batchSize = args.length >= 3 ? Integer.parseInt(args[2]) : DEFAULT_BATCH_SIZE;
+        int lingerMillis = args.length >= 4 ? Integer.parseInt(args[3]) : DEFAULT_LINGER_MILLIS;
+
+        TourServer server = new TourServer(port, workers, batchSize, lingerMillis);
+        server.start();
+        System.out.printf("Serving tours on http://localhost:%d/tour with %d workers, batches of %d, %d ms linger%n",
+                server.getPort(), workers, batchSize, lingerMillis);
+    }
+
+}
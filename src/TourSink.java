@@ -0,0 +1,55 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receiver of the tiles of a tour, one at a time and in the order they are visited.
+ *
+ * Only {@link #visit(int, int)} has to be implemented, so a sink can be written
+ * as a lambda. Sinks that write to a stream use {@link #begin(int, int, MoveSet)}
+ * to write a header and {@link #close()} to flush what is left.
+ */
+public interface TourSink extends Closeable {
+
+    /**
+     * Start receiving a knight's tour.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     * @throws IOException if the header cannot be written
+     */
+    default void begin(int rows, int columns) throws IOException {
+    }
+
+    /**
+     * Start receiving a tour of any piece.
+     *
+     * Sinks that only store the tiles can leave this to {@link #begin(int, int)}.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     * @param moveSet the moves of the piece that makes the tour
+     * @throws IOException if the header cannot be written
+     */
+    default void begin(int rows, int columns, MoveSet moveSet) throws IOException {
+        begin(rows, columns);
+    }
+
+    /**
+     * Receive the next tile of the tour.
+     *
+     * @param row the row where the tile is located
+     * @param column the column where the tile is located
+     * @throws IOException if the tile cannot be written
+     */
+    void visit(int row, int column) throws IOException;
+
+    /**
+     * Finish receiving the tour.
+     *
+     * @throws IOException if the rest of the tour cannot be written
+     */
+    @Override
+    default void close() throws IOException {
+    }
+
+}
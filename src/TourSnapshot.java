@@ -0,0 +1,322 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact snapshot of the state of a {@link TourEngine} on disk.
+ *
+ * The file starts with the magic number {@code KTS2}, the number of rows
+ * and columns as big-endian ints, and the name of the piece as accepted by
+ * {@link MoveSet#forName(String)}. A boolean tells if the board has blocked
+ * tiles, and if so, one bit per tile follows, set for a blocked tile and
+ * packed from the lowest bit of each byte. Then come the number of visited tiles
+ * and the depth of the redo stack as ints. The visited path followed by
+ * the redo path is one chain of moves, stored as its first square and the
+ * move number of every following square, packed in as few bits as the
+ * piece needs (3 for a knight) from the lowest bit of each byte. The file
+ * ends with the CRC-32 of everything before it, so a torn or damaged
+ * snapshot is rejected instead of resumed.
+ *
+ * A snapshot is written to a temporary file first and moved into place,
+ * so a crash while saving leaves the previous snapshot intact. Snapshots in
+ * the older {@code KTS1} format, which has no blocked tiles, can still be read.
+ */
+public class TourSnapshot {
+    public static final int MAGIC = 0x4b545332;
+    private static final int MAGIC_WITHOUT_MASK = 0x4b545331;
+    public static final long DEFAULT_CHECKPOINT_MOVES = 100_000;
+
+    private TourSnapshot() {
+    }
+
+    /**
+     * Save the path and the redo stack of an engine.
+     *
+     * @param engine the engine to save
+     * @param file the file to write, which is replaced if it exists
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(TourEngine engine, Path file) throws IOException {
+        MoveTable moveTable = engine.getMoveTable();
+        int[] visitedPath = engine.getPath();
+        int[] redoPath = engine.getRedoPath();
+        int length = visitedPath.length + redoPath.length;
+        int moveBits = moveTable.getMoveSet().getMoveBits();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            CRC32 checksum = new CRC32();
+            try (DataOutputStream output = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)), checksum))) {
+                output.writeInt(MAGIC);
+                output.writeInt(moveTable.getRows());
+                output.writeInt(moveTable.getColumns());
+                output.writeUTF(moveTable.getMoveSet().getName());
+                output.writeBoolean(moveTable.hasObstacles());
+                if (moveTable.hasObstacles()) {
+                    writeMask(output, moveTable);
+                }
+                output.writeInt(visitedPath.length);
+                output.writeInt(redoPath.length);
+
+                if (length > 0) {
+                    int previous = visitedPath.length > 0 ? visitedPath[0] : redoPath[0];
+                    output.writeInt(previous);
+
+                    int bitBuffer = 0, bitCounter = 0;
+                    for (int step = 1; step < length; step++) {
+                        int square = step < visitedPath.length ? visitedPath[step] : redoPath[step - visitedPath.length];
+                        bitBuffer |= getMoveNumber(moveTable, previous, square) << bitCounter;
+                        bitCounter += moveBits;
+                        while (bitCounter >= 8) {
+                            output.write(bitBuffer);
+                            bitBuffer >>>= 8;
+                            bitCounter -= 8;
+                        }
+                        previous = square;
+                    }
+                    if (bitCounter > 0) {
+                        output.write(bitBuffer);
+                    }
+                }
+
+                output.writeInt((int) checksum.getValue());
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Load a snapshot into a new engine for the board and the piece it was saved from.
+     *
+     * @param file the snapshot to read
+     * @return an engine with the saved path and redo stack
+     * @throws IOException if the snapshot cannot be read or is damaged
+     */
+    public static TourEngine read(Path file) throws IOException {
+        return read(file, null);
+    }
+
+    /**
+     * Load a snapshot into an existing engine, which keeps its move table.
+     *
+     * @param file the snapshot to read
+     * @param engine the engine to restore, whose board and piece must match the snapshot
+     * @throws IOException if the snapshot cannot be read or is damaged
+     * @throws IllegalArgumentException if the snapshot was saved from another board, piece or set of blocked tiles
+     */
+    public static void restore(Path file, TourEngine engine) throws IOException {
+        read(file, engine);
+    }
+
+    private static TourEngine read(Path file, TourEngine engine) throws IOException {
+        CRC32 checksum = new CRC32();
+        try (DataInputStream input = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file)), checksum))) {
+            int magic = input.readInt();
+            if (magic != MAGIC && magic != MAGIC_WITHOUT_MASK) {
+                throw new IOException("Not a tour snapshot: " + file);
+            }
+
+            int rows = input.readInt(), columns = input.readInt();
+            if (rows <= 0 || columns <= 0 || (long) rows * columns > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot board size: " + rows + "x" + columns);
+            }
+            MoveSet moveSet = MoveSet.forName(input.readUTF());
+            boolean[] blocked = magic == MAGIC && input.readBoolean() ? readMask(input, rows * columns) : null;
+            MoveTable moveTable;
+            if (engine == null) {
+                moveTable = new MoveTable(rows, columns, moveSet, blocked);
+                engine = new TourEngine(moveTable);
+            }
+            else {
+                moveTable = engine.getMoveTable();
+                if (!isSameBoard(moveTable, rows, columns, moveSet, blocked)) {
+                    throw new IllegalArgumentException("The snapshot is of a "
+                            + describe(rows, columns, moveSet, blocked) + ", not of a "
+                            + describe(moveTable.getRows(), moveTable.getColumns(), moveTable.getMoveSet(),
+                                    getMask(moveTable)));
+                }
+            }
+
+            int visitedLength = input.readInt(), redoLength = input.readInt();
+            if (visitedLength < 0 || redoLength < 0 || (long) visitedLength + redoLength > moveTable.getSquareCount()) {
+                throw new IOException("Invalid snapshot length: " + visitedLength + " + " + redoLength);
+            }
+
+            int[] visitedPath = new int[visitedLength], redoPath = new int[redoLength];
+            int length = visitedLength + redoLength;
+            if (length > 0) {
+                int moveBits = moveTable.getMoveSet().getMoveBits();
+                int previous = input.readInt();
+                int bitBuffer = 0, bitCounter = 0;
+
+                for (int step = 0; step < length; step++) {
+                    int square = previous;
+                    if (step > 0) {
+                        while (bitCounter < moveBits) {
+                            bitBuffer |= input.readUnsignedByte() << bitCounter;
+                            bitCounter += 8;
+                        }
+                        int moveNumber = bitBuffer & ((1 << moveBits) - 1);
+                        bitBuffer >>>= moveBits;
+                        bitCounter -= moveBits;
+
+                        square = moveNumber < moveTable.getMoveCount() && previous >= 0 && previous < moveTable.getSquareCount()
+                                ? moveTable.getNeighbour(previous, moveNumber) : -1;
+                    }
+                    if (step < visitedLength) {
+                        visitedPath[step] = square;
+                    }
+                    else {
+                        redoPath[step - visitedLength] = square;
+                    }
+                    previous = square;
+                }
+            }
+
+            int expected = (int) checksum.getValue();
+            if (input.readInt() != expected) {
+                throw new IOException("Damaged tour snapshot: " + file);
+            }
+
+            try {
+                engine.restore(visitedPath, redoPath);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Damaged tour snapshot: " + file, e);
+            }
+            return engine;
+        }
+    }
+
+    private static boolean isSameBoard(MoveTable moveTable, int rows, int columns, MoveSet moveSet, boolean[] blocked) {
+        if (moveTable.getRows() != rows || moveTable.getColumns() != columns || !moveTable.getMoveSet().equals(moveSet)
+                || moveTable.hasObstacles() != (blocked != null)) {
+            return false;
+        }
+        for (int square = 0; blocked != null && square < blocked.length; square++) {
+            if (moveTable.isBlocked(square) != blocked[square]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean[] getMask(MoveTable moveTable) {
+        if (!moveTable.hasObstacles()) {
+            return null;
+        }
+
+        boolean[] blocked = new boolean[moveTable.getSquareCount()];
+        for (int square = 0; square < blocked.length; square++) {
+            blocked[square] = moveTable.isBlocked(square);
+        }
+
+        return blocked;
+    }
+
+    private static String describe(int rows, int columns, MoveSet moveSet, boolean[] blocked) {
+        int blockedCounter = 0;
+        for (int square = 0; blocked != null && square < blocked.length; square++) {
+            blockedCounter += blocked[square] ? 1 : 0;
+        }
+
+        return rows + "x" + columns + " board"
+                + (blockedCounter > 0 ? " with " + blockedCounter + " blocked tiles" : "") + " for the " + moveSet.getName();
+    }
+
+    private static void writeMask(DataOutputStream output, MoveTable moveTable) throws IOException {
+        int bitBuffer = 0;
+        for (int square = 0; square < moveTable.getSquareCount(); square++) {
+            if (moveTable.isBlocked(square)) {
+                bitBuffer |= 1 << (square % 8);
+            }
+            if (square % 8 == 7 || square == moveTable.getSquareCount() - 1) {
+                output.write(bitBuffer);
+                bitBuffer = 0;
+            }
+        }
+    }
+
+    private static boolean[] readMask(DataInputStream input, int squareCount) throws IOException {
+        boolean[] blocked = new boolean[squareCount];
+        int bitBuffer = 0;
+        for (int square = 0; square < squareCount; square++) {
+            if (square % 8 == 0) {
+                bitBuffer = input.readUnsignedByte();
+            }
+            blocked[square] = (bitBuffer & 1 << (square % 8)) != 0;
+        }
+
+        return blocked;
+    }
+
+    private static int getMoveNumber(MoveTable moveTable, int square, int next) {
+        for (int moveNumber = 0; moveNumber < moveTable.getMoveCount(); moveNumber++) {
+            if (moveTable.getNeighbour(square, moveNumber) == next) {
+                return moveNumber;
+            }
+        }
+
+        throw new IllegalStateException("Not a move: " + square + " to " + next);
+    }
+
+    /**
+     * Make a tour in parts, saving a snapshot after every part. If the
+     * snapshot already exists, the tour is resumed from it instead of
+     * starting over, so a long run survives being stopped.
+     *
+     * A deterministic strategy resumes the very same tour; a random one
+     * continues with a fresh seed.
+     *
+     * Usage: {@code java TourSnapshot [rows] [columns] [strategy] [file] [checkpointMoves]}
+     */
+    public static void main(String[] args) throws IOException {
+        int rows = args.length >= 1 ? Integer.parseInt(args[0]) : 1000;
+        int columns = args.length >= 2 ? Integer.parseInt(args[1]) : rows;
+        MoveStrategy strategy = MoveStrategy.forName(args.length >= 3 ? args[2] : "optimized");
+        Path file = Paths.get(args.length >= 4 ? args[3] : "tour.kts");
+        long checkpointMoves = args.length >= 5 ? Long.parseLong(args[4]) : DEFAULT_CHECKPOINT_MOVES;
+        if (checkpointMoves <= 0) {
+            throw new IllegalArgumentException("Invalid checkpoint interval: " + checkpointMoves);
+        }
+
+        TourEngine engine = new TourEngine(rows, columns);
+        if (Files.exists(file)) {
+            long startTime = System.nanoTime();
+            restore(file, engine);
+            System.out.printf("Resumed %d tiles from %s in %.3f ms%n", engine.getVisitedTileCounter(), file,
+                    (System.nanoTime() - startTime) / 1e6);
+        }
+        else {
+            engine.start(0, 0);
+        }
+
+        int squareCount = rows * columns;
+        long moveCounter;
+        do {
+            moveCounter = engine.continueTour(strategy, checkpointMoves);
+            long startTime = System.nanoTime();
+            write(engine, file);
+            System.out.printf("Saved %d/%d tiles to %s (%d bytes) in %.3f ms%n", engine.getVisitedTileCounter(),
+                    squareCount, file, Files.size(file), (System.nanoTime() - startTime) / 1e6);
+        } while (moveCounter == checkpointMoves);
+
+        System.out.println(engine.isFullTour() ? "Full tour" : "Out of valid moves");
+    }
+
+}
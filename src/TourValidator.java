@@ -0,0 +1,302 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Sink that checks a tour in a single pass.
+ *
+ * Every tile is checked as it arrives: it has to be inside the board, a
+ * move of the piece away from the previous tile, and not visited before.
+ * The piece is the knight unless {@link #begin(int, int, MoveSet)} names
+ * another one, and knight's moves are checked by their shape, as
+ * {@link Knight#isValidMoveShape(int, int)} does. Apart from a bitset of the visited squares,
+ * only the first and the last tile are kept, so a tour can be checked while
+ * it is streamed from a file of any size.
+ *
+ * The bitset is split into pages of {@link #PAGE_BITS} bits and indexed by a
+ * {@code long}, so boards with more than two billion tiles can be checked.
+ * The pages are allocated when the tour first reaches them.
+ *
+ * Only the first error is reported, and the tiles after it are counted but
+ * not checked.
+ */
+public class TourValidator implements TourSink {
+    public static final int PAGE_BITS = 1 << 24;
+    private static final int PAGE_SHIFT = Integer.numberOfTrailingZeros(PAGE_BITS);
+    private int rows = -1;
+    private int columns = -1;
+    private MoveSet moveSet = MoveSet.KNIGHT;
+    private boolean knight = true;
+    private long[][] pages;
+    private long[] currentPage;
+    private int currentPageIndex = -1;
+    private long tileCounter;
+    private int firstRow = -1;
+    private int firstColumn = -1;
+    private int lastRow = -1;
+    private int lastColumn = -1;
+    private String error;
+
+    @Override
+    public void begin(int rows, int columns) {
+        begin(rows, columns, MoveSet.KNIGHT);
+    }
+
+    @Override
+    public void begin(int rows, int columns, MoveSet moveSet) {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("Invalid board size: " + rows + "x" + columns);
+        }
+
+        this.rows = rows;
+        this.columns = columns;
+        this.moveSet = moveSet;
+        this.knight = moveSet.equals(MoveSet.KNIGHT);
+        long squareCount = (long) rows * columns;
+        this.pages = new long[(int) ((squareCount + PAGE_BITS - 1) >>> PAGE_SHIFT)][];
+        this.currentPage = null;
+        this.currentPageIndex = -1;
+        this.tileCounter = 0;
+        this.firstRow = this.firstColumn = this.lastRow = this.lastColumn = -1;
+        this.error = null;
+    }
+
+    @Override
+    public void visit(int row, int column) {
+        if (rows < 0) {
+            throw new IllegalStateException("The board size is unknown; call begin() first");
+        }
+
+        tileCounter++;
+        if (error != null) {
+            return;
+        }
+
+        if (row < 0 || column < 0 || row >= rows || column >= columns) {
+            reject(" is outside the board: (" + row + ", " + column + ")");
+            return;
+        }
+        if (tileCounter > 1 && !isMove(lastRow, lastColumn, row, column)) {
+            rejectMove(row, column);
+            return;
+        }
+
+        long square = (long) row * columns + column;
+        int pageIndex = (int) (square >>> PAGE_SHIFT);
+        if (pageIndex != currentPageIndex) {
+            if (pages[pageIndex] == null) {
+                pages[pageIndex] = new long[PAGE_BITS / Long.SIZE];
+            }
+            currentPage = pages[pageIndex];
+            currentPageIndex = pageIndex;
+        }
+        long[] page = currentPage;
+        int bit = (int) (square & (PAGE_BITS - 1));
+        long mask = 1L << bit;
+        if ((page[bit >>> 6] & mask) != 0) {
+            reject(" visits (" + row + ", " + column + ") again");
+            return;
+        }
+        page[bit >>> 6] |= mask;
+
+        if (tileCounter == 1) {
+            firstRow = row;
+            firstColumn = column;
+        }
+        lastRow = row;
+        lastColumn = column;
+    }
+
+    /**
+     * Record the first error.
+     *
+     * Errors are built outside of {@link #visit(int, int)}, which keeps it small
+     * enough to be inlined into the loop that reads a tour.
+     *
+     * @param message what is wrong with the current step
+     */
+    private void reject(String message) {
+        error = "Step " + tileCounter + message;
+    }
+
+    private void rejectMove(int row, int column) {
+        reject(" is not a move of the " + moveSet.getName() + ": (" + lastRow + ", " + lastColumn
+                + ") to (" + row + ", " + column + ")");
+    }
+
+    /**
+     * Check if two tiles are a move of the piece apart.
+     */
+    private boolean isMove(int row, int column, int nextRow, int nextColumn) {
+        if (knight) {
+            return isKnightMove(row, column, nextRow, nextColumn);
+        }
+
+        long rowDiff = (long) nextRow - row, columnDiff = (long) nextColumn - column;
+        return rowDiff == (int) rowDiff && columnDiff == (int) columnDiff
+                && moveSet.contains((int) rowDiff, (int) columnDiff);
+    }
+
+    /**
+     * Check if two tiles are a knight's move apart.
+     *
+     * The differences are taken as longs, since on a huge board they do not fit in an int.
+     */
+    private static boolean isKnightMove(int row, int column, int nextRow, int nextColumn) {
+        long rowStep = Math.abs((long) nextRow - row), columnStep = Math.abs((long) nextColumn - column);
+
+        return (rowStep == 1 && columnStep == 2) || (rowStep == 2 && columnStep == 1);
+    }
+
+    /**
+     * Get the number of tiles received.
+     */
+    public long getTileCounter() {
+        return tileCounter;
+    }
+
+    /**
+     * Get the first error found, or {@code null} if every tile so far is valid.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Check if the tour is a valid tour of the whole board.
+     */
+    public boolean isValid() {
+        return error == null && rows > 0 && tileCounter == (long) rows * columns;
+    }
+
+    /**
+     * Check if the tour is valid and its last tile is a move of the piece away from the first.
+     */
+    public boolean isClosed() {
+        return isValid() && tileCounter > 1 && isMove(lastRow, lastColumn, firstRow, firstColumn);
+    }
+
+    /**
+     * Describe the outcome of the check.
+     */
+    public String getSummary() {
+        if (error != null) {
+            return "Invalid: " + error;
+        }
+        if (!isValid()) {
+            return "Incomplete: " + tileCounter + " of " + ((long) rows * columns) + " tiles visited";
+        }
+
+        return isClosed() ? "Valid closed tour" : "Valid open tour";
+    }
+
+    /**
+     * Check a knight's tour held in memory.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     * @param path the squares of the tour in the order they are visited
+     * @return the validator holding the outcome
+     */
+    public static TourValidator validate(int rows, int columns, int[] path) {
+        return validate(rows, columns, MoveSet.KNIGHT, path);
+    }
+
+    /**
+     * Check a tour of any piece held in memory.
+     *
+     * @param rows the number of rows of the board
+     * @param columns the number of columns of the board
+     * @param moveSet the moves of the piece that makes the tour
+     * @param path the squares of the tour in the order they are visited
+     * @return the validator holding the outcome
+     */
+    public static TourValidator validate(int rows, int columns, MoveSet moveSet, int[] path) {
+        TourValidator validator = new TourValidator();
+        validator.begin(rows, columns, moveSet);
+        for (int square : path) {
+            validator.visit(square / columns, square % columns);
+        }
+
+        return validator;
+    }
+
+    /**
+     * Check a knight's tour file, written by {@link BinaryTourWriter} or {@link CsvTourWriter}.
+     *
+     * @param file the path of the tour file
+     * @param rows the number of rows of the board of a CSV file
+     * @param columns the number of columns of the board of a CSV file
+     * @return the validator holding the outcome
+     * @throws IOException if the file cannot be read
+     */
+    public static TourValidator validate(Path file, int rows, int columns) throws IOException {
+        return validate(file, rows, columns, MoveSet.KNIGHT);
+    }
+
+    /**
+     * Check a tour file, written by {@link BinaryTourWriter} or {@link CsvTourWriter}.
+     *
+     * A CSV file carries no board size and no piece, so they have to be passed
+     * in. The ones in the header of a binary file are used instead.
+     *
+     * @param file the path of the tour file
+     * @param rows the number of rows of the board of a CSV file
+     * @param columns the number of columns of the board of a CSV file
+     * @param moveSet the moves of the piece of a CSV file
+     * @return the validator holding the outcome
+     * @throws IOException if the file cannot be read
+     */
+    public static TourValidator validate(Path file, int rows, int columns, MoveSet moveSet) throws IOException {
+        TourValidator validator = new TourValidator();
+
+        if (file.toString().endsWith(".csv")) {
+            validator.begin(rows, columns, moveSet);
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+                reader.readLine();
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+
+                    int first = line.indexOf(','), second = line.indexOf(',', first + 1);
+                    validator.visit(Integer.parseInt(line, first + 1, second, 10),
+                            Integer.parseInt(line, second + 1, line.length(), 10));
+                }
+            }
+        }
+        else {
+            try (TourReader reader = new TourReader(file)) {
+                reader.replay(validator);
+            }
+        }
+
+        return validator;
+    }
+
+    /**
+     * Check a tour file and print the outcome.
+     *
+     * Usage: {@code java TourValidator file [rows] [columns] [piece]}, where the
+     * board size and the piece are only needed for a CSV file.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java TourValidator file [rows] [columns] [piece]");
+            System.exit(2);
+        }
+
+        int rows = args.length >= 2 ? Integer.parseInt(args[1]) : TourEngine.DEFAULT_SIZE;
+        int columns = args.length >= 3 ? Integer.parseInt(args[2]) : rows;
+        MoveSet moveSet = args.length >= 4 ? MoveSet.forName(args[3]) : MoveSet.KNIGHT;
+
+        long startTime = System.nanoTime();
+        TourValidator validator = validate(Path.of(args[0]), rows, columns, moveSet);
+        System.out.println(validator.getSummary());
+        System.out.printf("Checked %d tiles in %.3f ms%n", validator.getTileCounter(), (System.nanoTime() - startTime) / 1e6);
+        System.exit(validator.isValid() ? 0 : 1);
+    }
+
+}
@@ -0,0 +1,39 @@
+/**
+ * Warnsdorff's rule: move to the square with the fewest onward moves.
+ *
+ * Ties are either broken by the lowest move number, or, in optimization mode,
+ * by looking ahead to the minimum accessibility score reachable from each of
+ * the tied squares. This is the rule used by {@link TourEngine#getOptimalMoveNumber(boolean)}.
+ */
+public class WarnsdorffStrategy implements MoveStrategy {
+    public static final WarnsdorffStrategy PLAIN = new WarnsdorffStrategy(false);
+    public static final WarnsdorffStrategy OPTIMIZED = new WarnsdorffStrategy(true);
+    private final boolean optimizedTiedSquares;
+
+    /**
+     * Construct a Warnsdorff strategy.
+     *
+     * @param optimizedTiedSquares turn on/off optimization mode when "tied" squares
+     *                             are encountered
+     */
+    public WarnsdorffStrategy(boolean optimizedTiedSquares) {
+        this.optimizedTiedSquares = optimizedTiedSquares;
+    }
+
+    /**
+     * Get the shared strategy for a mode.
+     *
+     * @param optimizedTiedSquares turn on/off optimization mode when "tied" squares
+     *                             are encountered
+     * @return {@link #OPTIMIZED} or {@link #PLAIN}
+     */
+    public static WarnsdorffStrategy of(boolean optimizedTiedSquares) {
+        return optimizedTiedSquares ? OPTIMIZED : PLAIN;
+    }
+
+    @Override
+    public int selectMove(TourEngine engine) {
+        return engine.getOptimalMoveNumber(optimizedTiedSquares);
+    }
+
+}